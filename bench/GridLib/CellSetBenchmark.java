@@ -0,0 +1,78 @@
+package GridLib;
+
+import GridLib.Grid.Cell;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the fan-out of {@link Cell#set(Object)} to the cell and grid
+ * listeners, alone and inside a {@link Grid#batch(java.util.function.Consumer)
+ * batch}.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellSetBenchmark {
+
+    private static final int BATCH = 1024;
+
+    @Param({"64", "512", "2048"})
+    int size;
+
+    @Param({"0", "1", "8"})
+    int cellListeners;
+
+    @Param({"0", "1", "8"})
+    int gridListeners;
+
+    private Grid<Integer> grid;
+    private Cell<Integer> cell;
+    private int value;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        grid = new Grid<>(0, size, size);
+        cell = grid.get(size / 2, size / 2);
+        for (int i = 0; i < cellListeners; i++) {
+            cell.addCellListener((Cell.CellListener<Integer>) (c, oldValue, newValue) -> blackhole.consume(newValue));
+        }
+        for (int i = 0; i < gridListeners; i++) {
+            grid.addGridListener(changes -> blackhole.consume(changes.size()));
+        }
+    }
+
+    @Benchmark
+    public Cell<Integer> set() {
+        cell.set(++value & 0x7F);
+        return cell;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Grid<Integer> setBatch() {
+        int base = ++value & 0x7F;
+        grid.batch(g -> {
+            for (int i = 0; i < BATCH; i++) {
+                g.getCell(i).set(base + (i & 0x7F));
+            }
+        });
+        return grid;
+    }
+}
@@ -0,0 +1,71 @@
+package GridLib;
+
+import GridLib.Grid.Cell;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the flood fills of a {@link GridCrawler} over a random maze in
+ * which 30% of the cells are walls.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrawlerBenchmark {
+
+    private static final int FLAG = 0;
+
+    @Param({"64", "512", "2048"})
+    int size;
+
+    private Grid<Boolean> grid;
+    private GridCrawler<Boolean> crawler;
+    private Cell<Boolean> start;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        grid = new Grid<>(size, size, (row, column) -> random.nextInt(10) >= 3);
+        start = grid.get(size / 2, size / 2);
+        start.set(Boolean.TRUE);
+        crawler = new GridCrawler<Boolean>(grid) {
+            @Override
+            public void crawl(Cell<Boolean> startingPoint) {
+            }
+        };
+    }
+
+    @Benchmark
+    public int floodFillVonNeumann() {
+        crawler.getFlagSet(FLAG).clear();
+        return crawler.floodFill(FLAG, start, Boolean.TRUE::equals, Neighbourhood.VON_NEUMANN);
+    }
+
+    @Benchmark
+    public int floodFillMoore() {
+        crawler.getFlagSet(FLAG).clear();
+        return crawler.floodFill(FLAG, start, Boolean.TRUE::equals, Neighbourhood.MOORE);
+    }
+
+    @Benchmark
+    public ConnectedComponents components() {
+        return crawler.components(Boolean.TRUE::equals, Neighbourhood.VON_NEUMANN);
+    }
+}
@@ -0,0 +1,103 @@
+package GridLib;
+
+import GridLib.Grid.Cell;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the navigation and regeneration of a {@link Grid}. The cells
+ * read by the navigation benchmarks are picked at random among a fixed set of
+ * probes, so that the benchmarks do not always hit the same cache lines.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridBenchmark {
+
+    private static final int PROBES = 1 << 12;
+
+    @Param({"64", "512", "2048"})
+    int size;
+
+    private Grid<Integer> grid;
+    private Grid.CellValueGenerator<Integer> generator;
+    private int[] rows;
+    private int[] columns;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        generator = (row, column) -> row ^ column;
+        grid = new Grid<>(size, size, generator);
+        Random random = new Random(42);
+        rows = new int[PROBES];
+        columns = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            rows[i] = random.nextInt(size);
+            columns[i] = random.nextInt(size);
+        }
+    }
+
+    private Cell<Integer> probe() {
+        int i = next++ & (PROBES - 1);
+        return grid.get(rows[i], columns[i]);
+    }
+
+    @Benchmark
+    public Cell<Integer> get() {
+        return probe();
+    }
+
+    @Benchmark
+    public ArrayList<Cell<Integer>> getAdjacents() {
+        return grid.getAdjacents(probe(), true);
+    }
+
+    @Benchmark
+    public ArrayList<Cell<Integer>> getDiagonalsAdjacents() {
+        return grid.getDiagonalsAdjacents(probe(), true);
+    }
+
+    @Benchmark
+    public ArrayList<Cell<Integer>> getDiagonalDesc() {
+        return grid.getDiagonalDesc(probe());
+    }
+
+    @Benchmark
+    public ArrayList<Cell<Integer>> getDiagonalAsc() {
+        return grid.getDiagonalAsc(probe());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Grid<Integer> regenerateCells() {
+        grid.regenerateCells(generator);
+        return grid;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Grid<Integer> regenerateCellsParallel() {
+        grid.regenerateCells(generator, ForkJoinPool.commonPool());
+        return grid;
+    }
+}
@@ -0,0 +1,85 @@
+package GridLib;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
+import javafx.embed.swing.JFXPanel;
+import javafx.scene.layout.GridPane;
+import javafx.scene.shape.Rectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the binding of a {@link NodeGrid} to a pane and of the update
+ * of a bound pane. An update is measured until the bound pane is updated on
+ * the JavaFX Application Thread, so it includes the hand-off to this thread.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeGridBenchmark {
+
+    @Param({"32", "128"})
+    int size;
+
+    @Param({"1", "64", "1024"})
+    int modified;
+
+    private NodeGrid<Rectangle> grid;
+    private Rectangle[] front;
+    private Rectangle[] back;
+    private int count;
+
+    @Setup
+    public void setUp() {
+        // starts the JavaFX toolkit
+        new JFXPanel();
+        front = new Rectangle[size * size];
+        back = new Rectangle[size * size];
+        for (int i = 0; i < front.length; i++) {
+            front[i] = new Rectangle(8, 8);
+            back[i] = new Rectangle(8, 8);
+        }
+        grid = new NodeGrid<>(size, size, (row, column) -> front[row * size + column]);
+        grid.bind(new GridPane());
+        count = Math.min(modified, front.length);
+    }
+
+    @Benchmark
+    public GridPane bind() {
+        GridPane pane = new GridPane();
+        grid.bind(pane);
+        grid.unbind(pane);
+        return pane;
+    }
+
+    @Benchmark
+    public NodeGrid<Rectangle> update() throws InterruptedException {
+        Rectangle[] swap = front;
+        front = back;
+        back = swap;
+        for (int i = 0; i < count; i++) {
+            grid.getCell(i).set(front[i]);
+        }
+        // the flush of the grid was scheduled before this task
+        CountDownLatch flushed = new CountDownLatch(1);
+        Platform.runLater(flushed::countDown);
+        flushed.await();
+        return grid;
+    }
+}
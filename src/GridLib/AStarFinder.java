@@ -0,0 +1,114 @@
+package GridLib;
+
+/**
+ * A {@link PathFinder} using the A* algorithm over any {@link Neighbourhood}
+ * and {@link CostFunction}. With {@link Heuristic#NONE}, it is a Dijkstra's
+ * search, which can also compute the distances from a cell to every other one
+ * with {@link #distances(int)}.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ */
+public class AStarFinder extends PathFinder {
+
+    private final Neighbourhood neighbourhood;
+    private final CostFunction cost;
+    private final Heuristic heuristic;
+    private final int[] neighbours;
+
+    /**
+     * Construct an AStarFinder searching paths in the specified grid.
+     *
+     * @param grid the grid where the paths are searched
+     * @param neighbourhood the moves allowed from a cell
+     * @param cost the cost of each move
+     * @param heuristic the estimation of the remaining cost of a path
+     */
+    public AStarFinder(AbstractGrid<?> grid, Neighbourhood neighbourhood, CostFunction cost, Heuristic heuristic) {
+        super(grid);
+        this.neighbourhood = neighbourhood;
+        this.cost = cost;
+        this.heuristic = heuristic;
+        this.neighbours = new int[neighbourhood.size()];
+    }
+
+    @Override
+    public int[] findPath(int start, int goal) {
+        checkIndex(start);
+        checkIndex(goal);
+        search(start, goal);
+        if (closed[goal] != generation) {
+            lastCost = Double.POSITIVE_INFINITY;
+            return null;
+        }
+        lastCost = costs[goal];
+        return path(goal);
+    }
+
+    /**
+     * Compute the cost of the shortest path from the specified cell to every
+     * other one.
+     *
+     * @param source the index of the cell the paths start from
+     * @return a grid containing the cost of the shortest path to each cell,
+     * {@link Double#POSITIVE_INFINITY} for the cells that cannot be reached
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public DoubleGrid distances(int source) {
+        checkIndex(source);
+        search(source, -1);
+        DoubleGrid distances = new DoubleGrid(Double.POSITIVE_INFINITY, grid.height(), grid.width());
+        for (int i = 0; i < costs.length; i++) {
+            if (closed[i] == generation) {
+                distances.values[i] = costs[i];
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Run the search until the goal is closed, or until every reachable cell
+     * is closed if the goal is negative.
+     */
+    private void search(int start, int goal) {
+        int gen = nextGeneration();
+        costs[start] = 0;
+        parents[start] = -1;
+        seen[start] = gen;
+        open.push(start, goal < 0 ? 0 : heuristic.estimate(start, goal));
+        while (!open.isEmpty()) {
+            int current = open.pop();
+            if (closed[current] == gen) {
+                continue;
+            }
+            closed[current] = gen;
+            if (current == goal) {
+                return;
+            }
+            double currentCost = costs[current];
+            int n = grid.neighbours(current, neighbourhood, neighbours, true);
+            for (int i = 0; i < n; i++) {
+                int next = neighbours[i];
+                if (closed[next] == gen) {
+                    continue;
+                }
+                double c = cost.cost(current, next);
+                if (c == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                double nextCost = currentCost + c;
+                if (seen[next] != gen || nextCost < costs[next]) {
+                    seen[next] = gen;
+                    costs[next] = nextCost;
+                    parents[next] = current;
+                    open.push(next, goal < 0 ? nextCost : nextCost + heuristic.estimate(next, goal));
+                }
+            }
+        }
+    }
+
+    @Override
+    PathFinder copy() {
+        return new AStarFinder(grid, neighbourhood, cost, heuristic);
+    }
+}
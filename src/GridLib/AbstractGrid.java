@@ -0,0 +1,879 @@
+package GridLib;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Base of every bidimensional non-resizable grid of this library. It only
+ * knows the height and width of the grid and how a row and a column map to a
+ * row-major index, and provides the row, column, adjacents and diagonals
+ * navigation on top of the cells returned by {@link #cellAt(int)}.
+ * <p>
+ * The neighbours of a cell depend on the {@link Topology} of the grid, which
+ * is {@link Topology#BOUNDED} by default. The neighbours of the cells near the
+ * borders are resolved by the topology the first time a neighbourhood is used,
+ * and kept in a table shared by the threads reading the grid.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see Grid
+ * @see IntGrid
+ * @param <C> the class of the cells of this grid
+ */
+public abstract class AbstractGrid<C> implements Iterable<C> {
+
+    private static final int MAX_TABLES = 8;
+
+    private final int height;
+    private final int width;
+    private volatile Topology topology;
+    private volatile NeighbourTable[] tables;
+
+    /**
+     * the index used in a neighbour buffer for a neighbour that is not in the
+     * grid
+     *
+     * @see #neighbours(int, Neighbourhood, int[], boolean)
+     */
+    public final static int NONE = -1;
+
+    /**
+     * the emplacement of the cell above the specified one in the returned
+     * ArrayList of the {@link #getAdjacents(int, int, boolean)} method
+     */
+    public final static int TOP = 0;
+
+    /**
+     * the emplacement of the cell to the right of the specified one in the
+     * returned ArrayList of the {@link #getAdjacents(int, int, boolean)}
+     * method
+     */
+    public final static int RIGHT = 1;
+
+    /**
+     * the emplacement of the cell below the specified one in the returned
+     * ArrayList of the {@link #getAdjacents(int, int, boolean)} method
+     */
+    public final static int BOTTOM = 2;
+
+    /**
+     * the emplacement of the cell to the left of the specified one in the
+     * returned ArrayList of the {@link #getAdjacents(int, int, boolean)}
+     * method
+     */
+    public final static int LEFT = 3;
+
+    /**
+     * the emplacement of the cell on the top-left corner of the specified one in
+     * the returned ArrayList of the
+     * {@link #getDiagonalsAdjacents(int, int, boolean)} method
+     */
+    public final static int TOP_LEFT = 0;
+
+    /**
+     * the emplacement of the cell on the top-right corner of the specified one
+     * in the returned ArrayList of the
+     * {@link #getDiagonalsAdjacents(int, int, boolean)} method
+     */
+    public final static int TOP_RIGHT = 1;
+
+    /**
+     * the emplacement of the cell on the bottom-right corner of the specified
+     * one in the returned ArrayList of the
+     * {@link #getDiagonalsAdjacents(int, int, boolean)} method
+     */
+    public final static int BOTTOM_RIGHT = 2;
+
+    /**
+     * the emplacement of the cell on the bottom-left corner of the specified
+     * one in the returned ArrayList of the
+     * {@link #getDiagonalsAdjacents(int, int, boolean)} method
+     */
+    public final static int BOTTOM_LEFT = 3;
+
+    /**
+     * Construct an AbstractGrid with the specified height and width.
+     *
+     * @param height the height of this grid
+     * @param width the width of this grid
+     * @throws IllegalArgumentException if the height or the width is negative
+     * or if the grid would contain more than {@link Integer#MAX_VALUE} cells
+     */
+    protected AbstractGrid(int height, int width) {
+        if (height < 0 || width < 0 || (long) height * width > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Illegal grid size: " + height + "x" + width);
+        }
+        this.height = height;
+        this.width = width;
+        this.topology = Topology.BOUNDED;
+        this.tables = new NeighbourTable[0];
+    }
+
+    /**
+     * Get the cell at the specified index without any bounds check. The index
+     * of a cell is <code>row * width() + column</code>.
+     *
+     * @param index the index of the cell
+     * @return the cell at the specified index
+     */
+    protected abstract C cellAt(int index);
+
+    /**
+     * Returns the characteristics of the spliterators over the cells of this
+     * grid, besides {@link Spliterator#ORDERED}, {@link Spliterator#SIZED} and
+     * {@link Spliterator#SUBSIZED}. The cells of a grid are handles that are
+     * never null nor replaced, so they are {@link Spliterator#NONNULL} and
+     * {@link Spliterator#IMMUTABLE} by default. A grid whose cells are its
+     * values must override this method.
+     *
+     * @return the characteristics of the cells of this grid
+     */
+    protected int cellCharacteristics() {
+        return Spliterator.NONNULL | Spliterator.IMMUTABLE;
+    }
+
+    /**
+     * Throws an exception if the specified row and column are not in this
+     * grid.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    protected final void checkBounds(int row, int column) {
+        if (row < 0 || column < 0 || row >= height || column >= width) {
+            throw new IndexOutOfBoundsException("row: " + row + ", column: " + column);
+        }
+    }
+
+    /**
+     * Returns true if the specified row and column are in this grid.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return true if the specified row and column are in this grid
+     */
+    public boolean contains(int row, int column) {
+        return row >= 0 && row < height && column >= 0 && column < width;
+    }
+
+    /**
+     * Get the index of the specified row and column. Cells are stored row
+     * after row, so the index is <code>row * width() + column</code>.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return the index of the specified row and column
+     */
+    public int index(int row, int column) {
+        return row * width + column;
+    }
+
+    /**
+     * Get the row of the specified index.
+     *
+     * @param index the specified index
+     * @return the row of the specified index
+     */
+    public int rowOf(int index) {
+        return index / width;
+    }
+
+    /**
+     * Get the column of the specified index.
+     *
+     * @param index the specified index
+     * @return the column of the specified index
+     */
+    public int columnOf(int index) {
+        return index % width;
+    }
+
+    /**
+     * Get the cell in the specified row and column.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return the specified cell
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public C getCell(int row, int column) {
+        checkBounds(row, column);
+        return cellAt(row * width + column);
+    }
+
+    /**
+     * Get the cell at the specified index.
+     *
+     * @param index the index of the cell
+     * @return the specified cell
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public C getCell(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+        return cellAt(index);
+    }
+
+    /**
+     * get the adjacents cells of the specified one.
+     *
+     * @param row the row of the specified cell
+     * @param column the column of the specified cell
+     * @param deleteNulls if set to true, delete the non-existant cells (when
+     * the specified cell is in a border or a corner)
+     *
+     * @return a list containing the adjacents cells in the order defined by the
+     * {@link #TOP}, {@link #RIGHT}, {@link #BOTTOM} and {@link #LEFT}
+     * constants. Beware that these cosntants become obsoletes if
+     * <code>deleteNulls</code> is true
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public ArrayList<C> getAdjacents(int row, int column, boolean deleteNulls) {
+        checkBounds(row, column);
+        int i = row * width + column;
+        ArrayList<C> res = new ArrayList<>(4);
+        NeighbourTable t = table(Neighbourhood.VON_NEUMANN);
+        addOrNull(res, t.neighbour(i, row, column, TOP), deleteNulls); //add up cell
+        addOrNull(res, t.neighbour(i, row, column, RIGHT), deleteNulls); //add right cell
+        addOrNull(res, t.neighbour(i, row, column, BOTTOM), deleteNulls); //add down cell
+        addOrNull(res, t.neighbour(i, row, column, LEFT), deleteNulls); //add left cell
+        return res;
+    }
+
+    /**
+     * get the diagonal-adjacents cells of the specified one.
+     *
+     * @param row the row of the specified cell
+     * @param column the column of the specified cell
+     * @param deleteNulls if set to true, delete the non-existant cells (when
+     * the specified cell is in a border or a corner)
+     *
+     * @return a list containing the diagonal-adjacents cells in the order
+     * defined by the
+     * {@link #TOP_LEFT}, {@link #TOP_RIGHT}, {@link #BOTTOM_RIGHT} and
+     * {@link #BOTTOM_LEFT} constants. Beware that these cosntants become
+     * obsoletes if <code>deleteNulls</code> is true
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public ArrayList<C> getDiagonalsAdjacents(int row, int column, boolean deleteNulls) {
+        checkBounds(row, column);
+        int i = row * width + column;
+        ArrayList<C> res = new ArrayList<>(4);
+        NeighbourTable t = table(Neighbourhood.DIAGONALS);
+        addOrNull(res, t.neighbour(i, row, column, TOP_LEFT), deleteNulls); //add up-left cell
+        addOrNull(res, t.neighbour(i, row, column, TOP_RIGHT), deleteNulls); //add up-right cell
+        addOrNull(res, t.neighbour(i, row, column, BOTTOM_RIGHT), deleteNulls); //add down-right cell
+        addOrNull(res, t.neighbour(i, row, column, BOTTOM_LEFT), deleteNulls); //add down-left cell
+        return res;
+    }
+
+    private void addOrNull(ArrayList<C> list, int index, boolean deleteNulls) {
+        if (index != NONE) {
+            list.add(cellAt(index));
+        } else if (!deleteNulls) {
+            list.add(null);
+        }
+    }
+
+    /**
+     * Call the visitor with the index of each neighbour of the specified cell
+     * that is in this grid, in the order of the neighbourhood. This method
+     * does not allocate anything once the neighbourhood was used: cells far
+     * enough from the borders only add the precomputed index offsets of the
+     * neighbourhood to their index, and the other ones read their neighbours
+     * in a table resolved with the {@link Topology} of this grid.
+     *
+     * @param index the index of the specified cell
+     * @param neighbourhood the neighbourhood to visit
+     * @param visitor the visitor called with the index of each neighbour
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public void forEachNeighbour(int index, Neighbourhood neighbourhood, IntConsumer visitor) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+        int row = index / width;
+        table(neighbourhood).forEach(index, row, index - row * width, visitor);
+    }
+
+    /**
+     * Fill the provided buffer with the index of each neighbour of the
+     * specified cell. This method does not allocate anything.
+     *
+     * @param index the index of the specified cell
+     * @param neighbourhood the neighbourhood to get
+     * @param buffer the buffer to fill, at least as long as the neighbourhood
+     * @param deleteNulls if set to true, only the neighbours that are in this
+     * grid are put at the start of the buffer; otherwise the buffer follows the
+     * order of the neighbourhood and contains {@link #NONE} for each neighbour
+     * outside of this grid
+     * @return the number of indexes put in the buffer
+     * @throws IndexOutOfBoundsException if the index is out of range or if the
+     * buffer is too small
+     */
+    public int neighbours(int index, Neighbourhood neighbourhood, int[] buffer, boolean deleteNulls) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+        if (buffer.length < neighbourhood.size()) {
+            throw new IndexOutOfBoundsException("buffer length: " + buffer.length);
+        }
+        int row = index / width;
+        return table(neighbourhood).fill(index, row, index - row * width, buffer, deleteNulls);
+    }
+
+    /**
+     * Call the visitor with the index of each adjacent cell of the specified
+     * one, in the order defined by the {@link #TOP}, {@link #RIGHT},
+     * {@link #BOTTOM} and {@link #LEFT} constants.
+     *
+     * @param row the row of the specified cell
+     * @param column the column of the specified cell
+     * @param visitor the visitor called with the index of each adjacent cell
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     * @see #forEachNeighbour(int, Neighbourhood, IntConsumer)
+     */
+    public void forEachAdjacent(int row, int column, IntConsumer visitor) {
+        checkBounds(row, column);
+        forEachNeighbour(row * width + column, Neighbourhood.VON_NEUMANN, visitor);
+    }
+
+    /**
+     * Call the visitor with the index of each diagonal-adjacent cell of the
+     * specified one, in the order defined by the {@link #TOP_LEFT},
+     * {@link #TOP_RIGHT}, {@link #BOTTOM_RIGHT} and {@link #BOTTOM_LEFT}
+     * constants.
+     *
+     * @param row the row of the specified cell
+     * @param column the column of the specified cell
+     * @param visitor the visitor called with the index of each
+     * diagonal-adjacent cell
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     * @see #forEachNeighbour(int, Neighbourhood, IntConsumer)
+     */
+    public void forEachDiagonalAdjacent(int row, int column, IntConsumer visitor) {
+        checkBounds(row, column);
+        forEachNeighbour(row * width + column, Neighbourhood.DIAGONALS, visitor);
+    }
+
+    /**
+     * Returns the topology of this grid.
+     *
+     * @return the topology used to find the neighbours of the cells
+     */
+    public Topology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Set the topology of this grid, which defines the neighbours of the
+     * cells near its borders. The neighbour tables of the previous topology
+     * are dropped. This method must not be called while the neighbours of
+     * the cells are read from other threads.
+     *
+     * @param topology the new topology
+     */
+    public void setTopology(Topology topology) {
+        if (topology == null) {
+            throw new NullPointerException("topology");
+        }
+        this.topology = topology;
+        this.tables = new NeighbourTable[0];
+    }
+
+    /**
+     * Returns the neighbour table of a neighbourhood in the current topology,
+     * building it if it is not known yet. The last tables used are kept, so
+     * a few neighbourhoods used in turn are only resolved once.
+     */
+    final NeighbourTable table(Neighbourhood neighbourhood) {
+        NeighbourTable[] known = tables;
+        Topology current = topology;
+        for (NeighbourTable table : known) {
+            if (table.neighbourhood == neighbourhood && table.topology == current) {
+                return table;
+            }
+        }
+        NeighbourTable table = new NeighbourTable(current, neighbourhood, height, width);
+        NeighbourTable[] updated = new NeighbourTable[Math.min(known.length + 1, MAX_TABLES)];
+        updated[0] = table;
+        System.arraycopy(known, 0, updated, 1, updated.length - 1);
+        tables = updated;
+        return table;
+    }
+
+    /**
+     * Get the specified row of cells.
+     *
+     * @param row the specified row
+     * @return a list containing the cells of the specified row from left to
+     * right
+     * @throws IndexOutOfBoundsException if the row is out of range
+     * @see #rowView(int)
+     */
+    public ArrayList<C> getRow(int row) {
+        return new ArrayList<>(rowView(row));
+    }
+
+    /**
+     * Get the specified column of cells.
+     *
+     * @param column the specified column
+     * @return a list containing the cells of the specified column from top to
+     * bottom
+     * @throws IndexOutOfBoundsException if the column is out of range
+     * @see #columnView(int)
+     */
+    public ArrayList<C> getColumn(int column) {
+        return new ArrayList<>(columnView(column));
+    }
+
+    /**
+     * Get the specified descending diagonal of cells
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return a list containing the cells of the specified descending diagonal
+     * from the top-left cell to the bottom-right one
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     * @see #diagonalDescView(int, int)
+     */
+    public ArrayList<C> getDiagonalDesc(int row, int column) {
+        return new ArrayList<>(diagonalDescView(row, column));
+    }
+
+    /**
+     * Get the specified ascending diagonal of cells
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return a list containing the cells of the specified ascending diagonal
+     * from the bottom-left cell to the top-right one
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     * @see #diagonalAscView(int, int)
+     */
+    public ArrayList<C> getDiagonalAsc(int row, int column) {
+        return new ArrayList<>(diagonalAscView(row, column));
+    }
+
+    /**
+     * Get a live view of the specified row of cells. Unlike
+     * {@link #getRow(int)}, nothing is copied: the view only knows where the
+     * row starts in this grid, and each cell is taken from the grid when it is
+     * read.
+     *
+     * @param row the specified row
+     * @return an unmodifiable list of the cells of the specified row from left
+     * to right
+     * @throws IndexOutOfBoundsException if the row is out of range
+     */
+    public List<C> rowView(int row) {
+        if (row < 0 || row >= height) {
+            throw new IndexOutOfBoundsException("row: " + row);
+        }
+        return new LineView(row * width, 1, width);
+    }
+
+    /**
+     * Get a live view of the specified column of cells.
+     *
+     * @param column the specified column
+     * @return an unmodifiable list of the cells of the specified column from
+     * top to bottom
+     * @throws IndexOutOfBoundsException if the column is out of range
+     * @see #rowView(int)
+     */
+    public List<C> columnView(int column) {
+        if (column < 0 || column >= width) {
+            throw new IndexOutOfBoundsException("column: " + column);
+        }
+        return new LineView(column, width, height);
+    }
+
+    /**
+     * Get a live view of the descending diagonal containing the specified
+     * cell.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return an unmodifiable list of the cells of the descending diagonal from
+     * the top-left cell to the bottom-right one
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     * @see #rowView(int)
+     */
+    public List<C> diagonalDescView(int row, int column) {
+        checkBounds(row, column);
+        int back = Math.min(row, column);
+        int rowStart = row - back;
+        int colStart = column - back;
+        return new LineView(rowStart * width + colStart, width + 1,
+                Math.min(height - rowStart, width - colStart));
+    }
+
+    /**
+     * Get a live view of the ascending diagonal containing the specified cell.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return an unmodifiable list of the cells of the ascending diagonal from
+     * the bottom-left cell to the top-right one
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     * @see #rowView(int)
+     */
+    public List<C> diagonalAscView(int row, int column) {
+        checkBounds(row, column);
+        int back = Math.min(height - 1 - row, column);
+        int rowStart = row + back;
+        int colStart = column - back;
+        return new LineView(rowStart * width + colStart, 1 - width,
+                Math.min(rowStart + 1, width - colStart));
+    }
+
+    /**
+     * Get a live view of a rectangular region of this grid. The cells are
+     * listed row after row, from the top-left cell of the region to its
+     * bottom-right one.
+     *
+     * @param row the top row of the region
+     * @param column the left column of the region
+     * @param height the number of rows of the region
+     * @param width the number of columns of the region
+     * @return an unmodifiable list of the cells of the specified region
+     * @throws IndexOutOfBoundsException if the region is not entirely in this
+     * grid
+     * @see #rowView(int)
+     */
+    public List<C> regionView(int row, int column, int height, int width) {
+        if (height < 0 || width < 0 || row < 0 || column < 0
+                || row + height > this.height || column + width > this.width) {
+            throw new IndexOutOfBoundsException("region: " + row + ", " + column
+                    + ", " + height + "x" + width);
+        }
+        return new RegionView(row, column, height, width);
+    }
+
+    /**
+     * Returns an iterator over the cells of this grid, row after row.
+     *
+     * @return an iterator over the cells of this grid
+     */
+    @Override
+    public Iterator<C> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * Returns a spliterator over the cells of this grid, row after row. It is
+     * {@link Spliterator#SIZED} and {@link Spliterator#SUBSIZED} and splits
+     * on row boundaries, so each part covers whole rows of contiguous cells.
+     *
+     * @return a spliterator over the cells of this grid
+     */
+    @Override
+    public Spliterator<C> spliterator() {
+        return new CellSpliterator<>(this::cellAt, 0, size(), Math.max(width, 1), cellCharacteristics());
+    }
+
+    /**
+     * Returns a sequential stream of the cells of this grid, row after row.
+     *
+     * @return a stream of the cells of this grid
+     * @see #spliterator()
+     */
+    public Stream<C> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a parallel stream of the cells of this grid. The cells are split
+     * between the threads by bands of whole rows.
+     *
+     * @return a parallel stream of the cells of this grid
+     * @see #spliterator()
+     */
+    public Stream<C> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Returns a sequential stream of the indexes of the cells of this grid,
+     * from 0 to <code>size() - 1</code>. Use {@link IntStream#parallel()} to
+     * process them by bands of whole rows in parallel.
+     *
+     * @return a stream of the indexes of the cells of this grid
+     */
+    public IntStream indexStream() {
+        return StreamSupport.intStream(new IndexSpliterator(0, size(), Math.max(width, 1)), false);
+    }
+
+    /**
+     * Returns the position where a spliterator over the positions
+     * <code>from</code> to <code>to</code> should be split: the row boundary
+     * nearest to the middle, or the middle itself if the range is a large part
+     * of a single row.
+     *
+     * @return the split position, or -1 if the range should not be split
+     */
+    private static int splitPoint(int from, int to, int rowLength) {
+        int middle = (from + to) >>> 1;
+        int boundary = middle - middle % rowLength;
+        if (boundary <= from) {
+            boundary += rowLength;
+        }
+        if (boundary < to) {
+            return boundary;
+        }
+        return to - from > MIN_SPLIT ? middle : -1;
+    }
+
+    /**
+     * The number of cells of a single row under which a spliterator is not
+     * split in the middle of the row.
+     */
+    private static final int MIN_SPLIT = 1 << 10;
+
+    /**
+     * A spliterator over a range of positions mapped to cells.
+     */
+    private static final class CellSpliterator<C> implements Spliterator<C> {
+
+        private final IntFunction<C> cells;
+        private int from;
+        private final int to;
+        private final int rowLength;
+        private final int characteristics;
+
+        private CellSpliterator(IntFunction<C> cells, int from, int to, int rowLength, int characteristics) {
+            this.cells = cells;
+            this.from = from;
+            this.to = to;
+            this.rowLength = rowLength;
+            this.characteristics = characteristics;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super C> action) {
+            if (from < to) {
+                action.accept(cells.apply(from++));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super C> action) {
+            int i = from;
+            from = to;
+            for (; i < to; i++) {
+                action.accept(cells.apply(i));
+            }
+        }
+
+        @Override
+        public Spliterator<C> trySplit() {
+            int split = splitPoint(from, to, rowLength);
+            if (split < 0) {
+                return null;
+            }
+            CellSpliterator<C> prefix = new CellSpliterator<>(cells, from, split, rowLength, characteristics);
+            from = split;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | characteristics;
+        }
+    }
+
+    /**
+     * A spliterator over a range of cell indexes.
+     */
+    private static final class IndexSpliterator implements Spliterator.OfInt {
+
+        private int from;
+        private final int to;
+        private final int rowLength;
+
+        private IndexSpliterator(int from, int to, int rowLength) {
+            this.from = from;
+            this.to = to;
+            this.rowLength = rowLength;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (from < to) {
+                action.accept(from++);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            int i = from;
+            from = to;
+            for (; i < to; i++) {
+                action.accept(i);
+            }
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            int split = splitPoint(from, to, rowLength);
+            if (split < 0) {
+                return null;
+            }
+            IndexSpliterator prefix = new IndexSpliterator(from, split, rowLength);
+            from = split;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE | DISTINCT | SORTED;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+
+    /**
+     * A view of the cells on a line of this grid, defined by the index of its
+     * first cell and the index offset between two consecutive cells.
+     */
+    private final class LineView extends AbstractList<C> implements RandomAccess {
+
+        private final int start;
+        private final int stride;
+        private final int length;
+
+        private LineView(int start, int stride, int length) {
+            this.start = start;
+            this.stride = stride;
+            this.length = length;
+        }
+
+        @Override
+        public C get(int i) {
+            if (i < 0 || i >= length) {
+                throw new IndexOutOfBoundsException("index: " + i);
+            }
+            return cellAt(start + i * stride);
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+
+        @Override
+        public Spliterator<C> spliterator() {
+            return new CellSpliterator<>(i -> cellAt(start + i * stride), 0, length, 1, cellCharacteristics());
+        }
+    }
+
+    /**
+     * A view of the cells of a rectangular region of this grid.
+     */
+    private final class RegionView extends AbstractList<C> implements RandomAccess {
+
+        private final int start;
+        private final int rows;
+        private final int columns;
+
+        private RegionView(int row, int column, int rows, int columns) {
+            this.start = row * width + column;
+            this.rows = rows;
+            this.columns = columns;
+        }
+
+        @Override
+        public C get(int i) {
+            if (i < 0 || i >= rows * columns) {
+                throw new IndexOutOfBoundsException("index: " + i);
+            }
+            return cellAt(indexOf(i));
+        }
+
+        private int indexOf(int i) {
+            int r = i / columns;
+            return start + r * width + (i - r * columns);
+        }
+
+        @Override
+        public int size() {
+            return rows * columns;
+        }
+
+        @Override
+        public Spliterator<C> spliterator() {
+            return new CellSpliterator<>(i -> cellAt(indexOf(i)), 0, rows * columns, Math.max(columns, 1),
+                    cellCharacteristics());
+        }
+    }
+
+    /**
+     * Return the number of rows in this grid.
+     *
+     * @return the number of rows in this grid
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Return the number of columns in this grid.
+     *
+     * @return the number of columns in this grid
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Return the number of cells in this grid.
+     *
+     * @return the number of cells in this grid
+     */
+    public int size() {
+        return height * width;
+    }
+}
@@ -0,0 +1,240 @@
+package GridLib;
+
+import java.util.Arrays;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * An index of the sum and the number of the occupied cells of a {@link Grid},
+ * answering the aggregates of any rectangle in O(log(height) x log(width))
+ * instead of scanning its cells. A cell is occupied when its value is not
+ * null, and its value is converted to a number by the function provided when
+ * the index is created.
+ * <p>
+ * The index is a pair of two-dimensional Fenwick trees updated by a
+ * {@link Grid.GridListener} each time cells are modified. A large
+ * {@link ChangeSet}, like the one of a
+ * {@link Grid#regenerateCells(Grid.CellValueGenerator) regeneration}, rebuilds
+ * the trees in a single pass over the grid instead. The function must then
+ * give the same number each time it is called with the same value. Like the
+ * grid, the index is not thread-safe.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @param <E> the class that the indexed grid contains
+ * @see Grid#indexAggregates(ToDoubleFunction)
+ */
+public final class AggregateIndex<E> {
+
+    private final Grid<E> grid;
+    private final ToDoubleFunction<? super E> function;
+    private final int height;
+    private final int width;
+    private final int updateCost;
+    private final double[] sums;
+    private final int[] counts;
+    private Runnable detach;
+
+    AggregateIndex(Grid<E> grid, ToDoubleFunction<? super E> function) {
+        this.grid = grid;
+        this.function = function;
+        this.height = grid.height();
+        this.width = grid.width();
+        this.updateCost = (32 - Integer.numberOfLeadingZeros(height)) * (32 - Integer.numberOfLeadingZeros(width));
+        this.sums = new double[(height + 1) * (width + 1)];
+        this.counts = new int[(height + 1) * (width + 1)];
+        rebuild();
+    }
+
+    void onDispose(Runnable detach) {
+        this.detach = detach;
+    }
+
+    /**
+     * Update the trees with the modified cells, or rebuild them if there are
+     * too many.
+     */
+    void changed(ChangeSet<E> changes) {
+        if ((long) changes.size() * updateCost > (long) height * width) {
+            rebuild();
+            return;
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            E oldValue = changes.oldValue(i);
+            E newValue = changes.newValue(i);
+            double delta = valueOf(newValue) - valueOf(oldValue);
+            int count = (newValue != null ? 1 : 0) - (oldValue != null ? 1 : 0);
+            if (delta != 0 || count != 0) {
+                add(changes.row(i), changes.column(i), delta, count);
+            }
+        }
+    }
+
+    private double valueOf(E value) {
+        return value == null ? 0 : function.applyAsDouble(value);
+    }
+
+    private void add(int row, int column, double delta, int count) {
+        for (int r = row + 1; r <= height; r += r & -r) {
+            int base = r * (width + 1);
+            for (int c = column + 1; c <= width; c += c & -c) {
+                sums[base + c] += delta;
+                counts[base + c] += count;
+            }
+        }
+    }
+
+    /**
+     * Rebuild the index from the current values of the grid. The index is
+     * rebuilt automatically after large modifications; rebuilding it
+     * explicitly only resets the rounding errors accumulated by the small
+     * ones, or takes into account a new behaviour of the function.
+     */
+    public void rebuild() {
+        Arrays.fill(sums, 0);
+        Arrays.fill(counts, 0);
+        int stride = width + 1;
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                E value = grid.getCell(row, column).get();
+                if (value != null) {
+                    sums[(row + 1) * stride + column + 1] = function.applyAsDouble(value);
+                    counts[(row + 1) * stride + column + 1] = 1;
+                }
+            }
+        }
+        // each node passes its partial aggregate to its parent, along the
+        // rows then along the columns
+        for (int r = 1; r <= height; r++) {
+            int base = r * stride;
+            for (int c = 1; c <= width; c++) {
+                int parent = c + (c & -c);
+                if (parent <= width) {
+                    sums[base + parent] += sums[base + c];
+                    counts[base + parent] += counts[base + c];
+                }
+            }
+        }
+        for (int r = 1; r <= height; r++) {
+            int parent = r + (r & -r);
+            if (parent <= height) {
+                for (int c = 1; c <= width; c++) {
+                    sums[parent * stride + c] += sums[r * stride + c];
+                    counts[parent * stride + c] += counts[r * stride + c];
+                }
+            }
+        }
+    }
+
+    private double prefixSum(int rows, int columns) {
+        double sum = 0;
+        for (int r = rows; r > 0; r -= r & -r) {
+            int base = r * (width + 1);
+            for (int c = columns; c > 0; c -= c & -c) {
+                sum += sums[base + c];
+            }
+        }
+        return sum;
+    }
+
+    private int prefixCount(int rows, int columns) {
+        int count = 0;
+        for (int r = rows; r > 0; r -= r & -r) {
+            int base = r * (width + 1);
+            for (int c = columns; c > 0; c -= c & -c) {
+                count += counts[base + c];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the sum of the occupied cells of a rectangle. The parts of the
+     * rectangle outside of the grid are ignored.
+     *
+     * @param row the first row of the rectangle
+     * @param column the first column of the rectangle
+     * @param height the number of rows of the rectangle
+     * @param width the number of columns of the rectangle
+     * @return the sum of the values of the occupied cells
+     */
+    public double sum(int row, int column, int height, int width) {
+        int r0 = clamp(row, this.height);
+        int c0 = clamp(column, this.width);
+        int r1 = clamp((long) row + height, this.height);
+        int c1 = clamp((long) column + width, this.width);
+        if (r1 <= r0 || c1 <= c0) {
+            return 0;
+        }
+        return prefixSum(r1, c1) - prefixSum(r0, c1) - prefixSum(r1, c0) + prefixSum(r0, c0);
+    }
+
+    /**
+     * Returns the number of occupied cells of a rectangle. The parts of the
+     * rectangle outside of the grid are ignored.
+     *
+     * @param row the first row of the rectangle
+     * @param column the first column of the rectangle
+     * @param height the number of rows of the rectangle
+     * @param width the number of columns of the rectangle
+     * @return the number of cells whose value is not null
+     */
+    public int count(int row, int column, int height, int width) {
+        int r0 = clamp(row, this.height);
+        int c0 = clamp(column, this.width);
+        int r1 = clamp((long) row + height, this.height);
+        int c1 = clamp((long) column + width, this.width);
+        if (r1 <= r0 || c1 <= c0) {
+            return 0;
+        }
+        return prefixCount(r1, c1) - prefixCount(r0, c1) - prefixCount(r1, c0) + prefixCount(r0, c0);
+    }
+
+    /**
+     * Returns the mean of the occupied cells of a rectangle. The parts of the
+     * rectangle outside of the grid are ignored.
+     *
+     * @param row the first row of the rectangle
+     * @param column the first column of the rectangle
+     * @param height the number of rows of the rectangle
+     * @param width the number of columns of the rectangle
+     * @return the mean of the values of the occupied cells, or NaN if there
+     * is none
+     */
+    public double mean(int row, int column, int height, int width) {
+        int count = count(row, column, height, width);
+        return count == 0 ? Double.NaN : sum(row, column, height, width) / count;
+    }
+
+    /**
+     * Returns the sum of the occupied cells of the whole grid.
+     *
+     * @return the sum of the values of the occupied cells
+     */
+    public double sum() {
+        return prefixSum(height, width);
+    }
+
+    /**
+     * Returns the number of occupied cells of the whole grid.
+     *
+     * @return the number of cells whose value is not null
+     */
+    public int count() {
+        return prefixCount(height, width);
+    }
+
+    private static int clamp(long value, int max) {
+        return (int) Math.max(0, Math.min(max, value));
+    }
+
+    /**
+     * Stop updating this index. Its aggregates are not valid anymore once the
+     * grid is modified.
+     */
+    public void dispose() {
+        if (detach != null) {
+            detach.run();
+            detach = null;
+        }
+    }
+}
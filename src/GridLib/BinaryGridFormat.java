@@ -0,0 +1,760 @@
+package GridLib;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A compact binary format to save and restore grids through NIO channels.
+ * <p>
+ * A file starts with a header containing the format version, the kind of
+ * grid, its height and width, and the name of the {@link ValueCodec} of a
+ * {@link Grid}. The values follow row after row, framed in blocks of whole
+ * rows. Each block has its own length and checksum and can be compressed
+ * independently, so the grids are written and read block after block, with a
+ * buffer of one block and without any intermediate object: a {@link Grid} is
+ * built directly from the decoded values. The values of {@link IntGrid},
+ * {@link ByteGrid} and {@link DoubleGrid} are copied in bulk between their
+ * arrays and the blocks.
+ * <p>
+ * All the numbers are written in little-endian order. A BinaryGridFormat has
+ * no state, so the same instance can be used by several threads at once.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ */
+public class BinaryGridFormat {
+
+    /**
+     * The version of the format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x53445247;
+    private static final int KIND_OBJECT = 0;
+    private static final int KIND_INT = 1;
+    private static final int KIND_BYTE = 2;
+    private static final int KIND_DOUBLE = 3;
+    private static final int FLAG_COMPRESSED = 1;
+    private static final int BLOCK_HEADER_SIZE = 13;
+    private static final int BLOCK_CELLS = 1 << 16;
+
+    private final boolean compress;
+    private final int rowsPerBlock;
+
+    /**
+     * Construct a BinaryGridFormat writing uncompressed blocks of about 65536
+     * cells.
+     */
+    public BinaryGridFormat() {
+        this(false, 0);
+    }
+
+    /**
+     * Construct a BinaryGridFormat writing blocks of about 65536 cells.
+     *
+     * @param compress true to compress the blocks with the deflate algorithm
+     */
+    public BinaryGridFormat(boolean compress) {
+        this(compress, 0);
+    }
+
+    /**
+     * Construct a BinaryGridFormat writing blocks of the specified number of
+     * rows.
+     *
+     * @param compress true to compress the blocks with the deflate algorithm
+     * @param rowsPerBlock the number of rows of a block, or 0 to choose it
+     * from the width of the grid
+     * @throws IllegalArgumentException if the number of rows is negative
+     */
+    public BinaryGridFormat(boolean compress, int rowsPerBlock) {
+        if (rowsPerBlock < 0) {
+            throw new IllegalArgumentException("Illegal rows per block: " + rowsPerBlock);
+        }
+        this.compress = compress;
+        this.rowsPerBlock = rowsPerBlock;
+    }
+
+    private int rowsPerBlock(AbstractGrid<?> grid) {
+        int rows = rowsPerBlock > 0 ? rowsPerBlock : BLOCK_CELLS / Math.max(grid.width(), 1);
+        return Math.max(1, Math.min(rows, grid.height()));
+    }
+
+    /**
+     * Write a grid and its values to a channel.
+     *
+     * @param <E> the class that the grid contains
+     * @param grid the grid to write
+     * @param codec the codec writing each value
+     * @param out the channel where the grid is written
+     * @throws IOException if an I/O error occurs
+     */
+    public <E> void write(Grid<E> grid, ValueCodec<? super E> codec, WritableByteChannel out) throws IOException {
+        int rows = rowsPerBlock(grid);
+        BlockWriter writer = new BlockWriter(out, 1 << 16);
+        writer.header(KIND_OBJECT, grid.height(), grid.width(), rows, codec.name());
+        int width = grid.width();
+        for (int fromRow = 0; fromRow < grid.height(); fromRow += rows) {
+            int to = Math.min(grid.height(), fromRow + rows) * width;
+            for (int i = fromRow * width; i < to; i++) {
+                E value = grid.getCell(i).get();
+                codec.write(value, writer.ensure(codec.maxSize(value)));
+            }
+            writer.flushBlock();
+        }
+        writer.end();
+    }
+
+    /**
+     * Write an IntGrid and its values to a channel.
+     *
+     * @param grid the grid to write
+     * @param out the channel where the grid is written
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(IntGrid grid, WritableByteChannel out) throws IOException {
+        int rows = rowsPerBlock(grid);
+        BlockWriter writer = new BlockWriter(out, rows * grid.width() * Integer.BYTES);
+        writer.header(KIND_INT, grid.height(), grid.width(), rows, "int");
+        for (int from = 0; from < grid.size(); from += rows * grid.width()) {
+            int count = Math.min(grid.size() - from, rows * grid.width());
+            ByteBuffer block = writer.block();
+            block.asIntBuffer().put(grid.values, from, count);
+            block.position(block.position() + count * Integer.BYTES);
+            writer.flushBlock();
+        }
+        writer.end();
+    }
+
+    /**
+     * Write a ByteGrid and its values to a channel.
+     *
+     * @param grid the grid to write
+     * @param out the channel where the grid is written
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(ByteGrid grid, WritableByteChannel out) throws IOException {
+        int rows = rowsPerBlock(grid);
+        BlockWriter writer = new BlockWriter(out, rows * grid.width());
+        writer.header(KIND_BYTE, grid.height(), grid.width(), rows, "byte");
+        for (int from = 0; from < grid.size(); from += rows * grid.width()) {
+            int count = Math.min(grid.size() - from, rows * grid.width());
+            writer.block().put(grid.values, from, count);
+            writer.flushBlock();
+        }
+        writer.end();
+    }
+
+    /**
+     * Write a DoubleGrid and its values to a channel.
+     *
+     * @param grid the grid to write
+     * @param out the channel where the grid is written
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(DoubleGrid grid, WritableByteChannel out) throws IOException {
+        int rows = rowsPerBlock(grid);
+        BlockWriter writer = new BlockWriter(out, rows * grid.width() * Double.BYTES);
+        writer.header(KIND_DOUBLE, grid.height(), grid.width(), rows, "double");
+        for (int from = 0; from < grid.size(); from += rows * grid.width()) {
+            int count = Math.min(grid.size() - from, rows * grid.width());
+            ByteBuffer block = writer.block();
+            block.asDoubleBuffer().put(grid.values, from, count);
+            block.position(block.position() + count * Double.BYTES);
+            writer.flushBlock();
+        }
+        writer.end();
+    }
+
+    /**
+     * Read a grid written by {@link #write(Grid, ValueCodec, WritableByteChannel)}.
+     *
+     * @param <E> the class that the grid contains
+     * @param in the channel where the grid is read
+     * @param codec the codec reading each value, with the same name as the one
+     * the grid was written with
+     * @return the read grid
+     * @throws IOException if an I/O error occurs, or if the data is not a
+     * grid written with this codec
+     */
+    public <E> Grid<E> readGrid(ReadableByteChannel in, ValueCodec<? extends E> codec) throws IOException {
+        BlockReader reader = new BlockReader(in, KIND_OBJECT, codec.name());
+        try {
+            Grid<E> grid = new Grid<>(reader.height, reader.width, (row, column) -> {
+                try {
+                    return codec.read(reader.values(row * reader.width + column));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            reader.end();
+            return grid;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted grid data", e);
+        }
+    }
+
+    /**
+     * Read an IntGrid written by {@link #write(IntGrid, WritableByteChannel)}.
+     *
+     * @param in the channel where the grid is read
+     * @return the read grid
+     * @throws IOException if an I/O error occurs, or if the data is not an
+     * IntGrid
+     */
+    public IntGrid readIntGrid(ReadableByteChannel in) throws IOException {
+        BlockReader reader = new BlockReader(in, KIND_INT, "int");
+        IntGrid grid = new IntGrid(reader.height, reader.width);
+        for (int from = 0; from < grid.size();) {
+            ByteBuffer block = reader.next(Integer.BYTES);
+            int count = block.remaining() / Integer.BYTES;
+            reader.checkCount(from, count, grid.size());
+            block.asIntBuffer().get(grid.values, from, count);
+            block.position(block.limit());
+            from += count;
+        }
+        reader.end();
+        return grid;
+    }
+
+    /**
+     * Read a ByteGrid written by {@link #write(ByteGrid, WritableByteChannel)}.
+     *
+     * @param in the channel where the grid is read
+     * @return the read grid
+     * @throws IOException if an I/O error occurs, or if the data is not a
+     * ByteGrid
+     */
+    public ByteGrid readByteGrid(ReadableByteChannel in) throws IOException {
+        BlockReader reader = new BlockReader(in, KIND_BYTE, "byte");
+        ByteGrid grid = new ByteGrid(reader.height, reader.width);
+        for (int from = 0; from < grid.size();) {
+            ByteBuffer block = reader.next(1);
+            int count = block.remaining();
+            reader.checkCount(from, count, grid.size());
+            block.get(grid.values, from, count);
+            from += count;
+        }
+        reader.end();
+        return grid;
+    }
+
+    /**
+     * Read a DoubleGrid written by
+     * {@link #write(DoubleGrid, WritableByteChannel)}.
+     *
+     * @param in the channel where the grid is read
+     * @return the read grid
+     * @throws IOException if an I/O error occurs, or if the data is not a
+     * DoubleGrid
+     */
+    public DoubleGrid readDoubleGrid(ReadableByteChannel in) throws IOException {
+        BlockReader reader = new BlockReader(in, KIND_DOUBLE, "double");
+        DoubleGrid grid = new DoubleGrid(reader.height, reader.width);
+        for (int from = 0; from < grid.size();) {
+            ByteBuffer block = reader.next(Double.BYTES);
+            int count = block.remaining() / Double.BYTES;
+            reader.checkCount(from, count, grid.size());
+            block.asDoubleBuffer().get(grid.values, from, count);
+            block.position(block.limit());
+            from += count;
+        }
+        reader.end();
+        return grid;
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static void readFully(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                throw new EOFException("Truncated grid data");
+            }
+        }
+    }
+
+    /**
+     * Writes the header and the blocks of a grid. A block is:
+     * <ul>
+     * <li>a byte, 1 if the block is compressed and 0 otherwise</li>
+     * <li>the length of the encoded values</li>
+     * <li>the length of the stored bytes</li>
+     * <li>the CRC-32 of the encoded values</li>
+     * <li>the stored bytes</li>
+     * </ul>
+     */
+    private final class BlockWriter {
+
+        private final WritableByteChannel out;
+        private final CRC32 crc = new CRC32();
+        private final Deflater deflater;
+        private ByteBuffer block;
+        private byte[] compressed;
+
+        private BlockWriter(WritableByteChannel out, int capacity) {
+            this.out = out;
+            this.block = ByteBuffer.allocate(Math.max(capacity, 16)).order(ByteOrder.LITTLE_ENDIAN);
+            this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        }
+
+        private void header(int kind, int height, int width, int rows, String codec) throws IOException {
+            byte[] name = codec.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer header = ByteBuffer.allocate(32 + name.length).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(kind).putInt(height).putInt(width).putInt(rows)
+                    .putInt(compress ? FLAG_COMPRESSED : 0).putInt(name.length).put(name).flip();
+            writeFully(out, header);
+        }
+
+        private ByteBuffer block() {
+            return block;
+        }
+
+        /**
+         * Returns the block, grown if it has less than the specified number of
+         * bytes remaining.
+         */
+        private ByteBuffer ensure(int bytes) {
+            if (block.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(block.capacity() * 2, block.position() + bytes))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                block.flip();
+                larger.put(block);
+                block = larger;
+            }
+            return block;
+        }
+
+        private void flushBlock() throws IOException {
+            byte[] raw = block.array();
+            int length = block.position();
+            crc.reset();
+            crc.update(raw, 0, length);
+            byte[] stored = raw;
+            int storedLength = length;
+            boolean deflated = false;
+            if (deflater != null && length > 0) {
+                if (compressed == null || compressed.length < length) {
+                    compressed = new byte[length];
+                }
+                deflater.reset();
+                deflater.setInput(raw, 0, length);
+                deflater.finish();
+                int n = deflater.deflate(compressed, 0, compressed.length);
+                if (deflater.finished() && n < length) {
+                    stored = compressed;
+                    storedLength = n;
+                    deflated = true;
+                }
+            }
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put((byte) (deflated ? 1 : 0)).putInt(length).putInt(storedLength)
+                    .putInt((int) crc.getValue()).flip();
+            writeFully(out, header);
+            writeFully(out, ByteBuffer.wrap(stored, 0, storedLength));
+            block.clear();
+        }
+
+        private void end() {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Reads the header and the blocks of a grid written by a BlockWriter.
+     */
+    private static final class BlockReader {
+
+        private final ReadableByteChannel in;
+        private final CRC32 crc = new CRC32();
+        private final ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final int height;
+        private final int width;
+        private Inflater inflater;
+        private ByteBuffer block = ByteBuffer.allocate(0);
+        private byte[] stored = new byte[0];
+        private int next;
+
+        private BlockReader(ReadableByteChannel in, int kind, String codec) throws IOException {
+            this.in = in;
+            ByteBuffer header = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(in, header);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a grid");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported grid format version: " + version);
+            }
+            if (header.getInt() != kind) {
+                throw new IOException("Wrong kind of grid");
+            }
+            height = header.getInt();
+            width = header.getInt();
+            if (height < 0 || width < 0 || (long) height * width > Integer.MAX_VALUE) {
+                throw new IOException("Illegal grid size: " + height + "x" + width);
+            }
+            header.getInt();
+            header.getInt();
+            int nameLength = header.getInt();
+            if (nameLength < 0 || nameLength > 1 << 16) {
+                throw new IOException("Illegal codec name length: " + nameLength);
+            }
+            ByteBuffer name = ByteBuffer.allocate(nameLength);
+            readFully(in, name);
+            String written = new String(name.array(), StandardCharsets.UTF_8);
+            if (!written.equals(codec)) {
+                throw new IOException("Grid written with codec " + written + ", not " + codec);
+            }
+        }
+
+        /**
+         * Read and decode the next block.
+         *
+         * @param valueSize the size of a value, the length of the block must
+         * be a multiple of it
+         */
+        private ByteBuffer next(int valueSize) throws IOException {
+            blockHeader.clear();
+            readFully(in, blockHeader);
+            blockHeader.flip();
+            byte mode = blockHeader.get();
+            int length = blockHeader.getInt();
+            int storedLength = blockHeader.getInt();
+            int checksum = blockHeader.getInt();
+            if (mode < 0 || mode > 1 || length < 0 || storedLength < 0
+                    || (mode == 0 && storedLength != length) || length % valueSize != 0) {
+                throw new IOException("Corrupted grid block");
+            }
+            if (block.capacity() < length) {
+                block = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            block.clear();
+            if (mode == 0) {
+                block.limit(length);
+                readFully(in, block);
+            } else {
+                if (stored.length < storedLength) {
+                    stored = new byte[storedLength];
+                }
+                readFully(in, ByteBuffer.wrap(stored, 0, storedLength));
+                if (inflater == null) {
+                    inflater = new Inflater();
+                }
+                inflater.reset();
+                inflater.setInput(stored, 0, storedLength);
+                try {
+                    if (inflater.inflate(block.array(), 0, length) != length || !inflater.finished()) {
+                        throw new IOException("Corrupted grid block");
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupted grid block", e);
+                }
+                block.limit(length);
+            }
+            crc.reset();
+            crc.update(block.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Wrong grid block checksum");
+            }
+            block.position(0);
+            return block;
+        }
+
+        /**
+         * Returns the block containing the value of the specified index, which
+         * must be the next one.
+         */
+        private ByteBuffer values(int index) throws IOException {
+            if (index != next++) {
+                throw new IOException("Values read out of order");
+            }
+            if (!block.hasRemaining()) {
+                next(1);
+            }
+            return block;
+        }
+
+        private void checkCount(int from, int count, int size) throws IOException {
+            if (count == 0 || from + count > size) {
+                throw new IOException("Corrupted grid block");
+            }
+        }
+
+        private void end() throws IOException {
+            if (block.hasRemaining()) {
+                throw new IOException("Unexpected data after the last value");
+            }
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * The encoding of the values of a {@link Grid}. A codec writes each value
+     * in the block of its row, and must read exactly the bytes it wrote. The
+     * name of the codec is written in the header of the grid, and a grid can
+     * only be read by a codec with the same name.
+     *
+     * @param <E> the class of the encoded values
+     */
+    public interface ValueCodec<E> {
+
+        /**
+         * Encodes <code>int</code> values, which cannot be null.
+         */
+        ValueCodec<Integer> INT = new ValueCodec<Integer>() {
+            @Override
+            public String name() {
+                return "int";
+            }
+
+            @Override
+            public int maxSize(Integer value) {
+                return Integer.BYTES;
+            }
+
+            @Override
+            public void write(Integer value, ByteBuffer out) {
+                out.putInt(value);
+            }
+
+            @Override
+            public Integer read(ByteBuffer in) {
+                return in.getInt();
+            }
+        };
+
+        /**
+         * Encodes <code>long</code> values, which cannot be null.
+         */
+        ValueCodec<Long> LONG = new ValueCodec<Long>() {
+            @Override
+            public String name() {
+                return "long";
+            }
+
+            @Override
+            public int maxSize(Long value) {
+                return Long.BYTES;
+            }
+
+            @Override
+            public void write(Long value, ByteBuffer out) {
+                out.putLong(value);
+            }
+
+            @Override
+            public Long read(ByteBuffer in) {
+                return in.getLong();
+            }
+        };
+
+        /**
+         * Encodes <code>double</code> values, which cannot be null.
+         */
+        ValueCodec<Double> DOUBLE = new ValueCodec<Double>() {
+            @Override
+            public String name() {
+                return "double";
+            }
+
+            @Override
+            public int maxSize(Double value) {
+                return Double.BYTES;
+            }
+
+            @Override
+            public void write(Double value, ByteBuffer out) {
+                out.putDouble(value);
+            }
+
+            @Override
+            public Double read(ByteBuffer in) {
+                return in.getDouble();
+            }
+        };
+
+        /**
+         * Encodes <code>boolean</code> values, which cannot be null.
+         */
+        ValueCodec<Boolean> BOOLEAN = new ValueCodec<Boolean>() {
+            @Override
+            public String name() {
+                return "boolean";
+            }
+
+            @Override
+            public int maxSize(Boolean value) {
+                return 1;
+            }
+
+            @Override
+            public void write(Boolean value, ByteBuffer out) {
+                out.put((byte) (value ? 1 : 0));
+            }
+
+            @Override
+            public Boolean read(ByteBuffer in) {
+                return in.get() != 0;
+            }
+        };
+
+        /**
+         * Encodes strings in UTF-8. Null strings are allowed.
+         */
+        ValueCodec<String> STRING = new ValueCodec<String>() {
+            @Override
+            public String name() {
+                return "string";
+            }
+
+            @Override
+            public int maxSize(String value) {
+                return value == null ? Integer.BYTES : Integer.BYTES + value.length() * 3;
+            }
+
+            @Override
+            public void write(String value, ByteBuffer out) {
+                if (value == null) {
+                    out.putInt(-1);
+                } else {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.putInt(bytes.length).put(bytes);
+                }
+            }
+
+            @Override
+            public String read(ByteBuffer in) {
+                int length = in.getInt();
+                if (length < 0) {
+                    return null;
+                }
+                String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+                in.position(in.position() + length);
+                return value;
+            }
+        };
+
+        /**
+         * Returns the name of this codec, written in the header of the grids.
+         *
+         * @return the name of this codec
+         */
+        String name();
+
+        /**
+         * Returns the largest number of bytes that {@link #write} can write
+         * for the specified value.
+         *
+         * @param value the value to encode
+         * @return the maximum size of the encoded value
+         */
+        int maxSize(E value);
+
+        /**
+         * Write a value.
+         *
+         * @param value the value to write
+         * @param out the buffer where the value is written, with at least
+         * {@link #maxSize} bytes remaining
+         */
+        void write(E value, ByteBuffer out);
+
+        /**
+         * Read a value written by {@link #write}.
+         *
+         * @param in the buffer where the value is read
+         * @return the read value
+         */
+        E read(ByteBuffer in);
+
+        /**
+         * Returns a codec allowing null values, writing a byte before each
+         * value to tell if it is null.
+         *
+         * @param <E> the class of the encoded values
+         * @param codec the codec of the values that are not null
+         * @return a codec allowing null values
+         */
+        static <E> ValueCodec<E> nullable(ValueCodec<E> codec) {
+            return new ValueCodec<E>() {
+                @Override
+                public String name() {
+                    return "nullable(" + codec.name() + ")";
+                }
+
+                @Override
+                public int maxSize(E value) {
+                    return value == null ? 1 : 1 + codec.maxSize(value);
+                }
+
+                @Override
+                public void write(E value, ByteBuffer out) {
+                    out.put((byte) (value == null ? 0 : 1));
+                    if (value != null) {
+                        codec.write(value, out);
+                    }
+                }
+
+                @Override
+                public E read(ByteBuffer in) {
+                    return in.get() == 0 ? null : codec.read(in);
+                }
+            };
+        }
+
+        /**
+         * Returns a codec writing the ordinal of the constants of an enum.
+         * Null values are allowed.
+         *
+         * @param <E> the class of the encoded values
+         * @param type the class of the enum
+         * @return a codec for the constants of the enum
+         */
+        static <E extends Enum<E>> ValueCodec<E> ofEnum(Class<E> type) {
+            E[] constants = type.getEnumConstants();
+            return new ValueCodec<E>() {
+                @Override
+                public String name() {
+                    return "enum(" + type.getName() + ")";
+                }
+
+                @Override
+                public int maxSize(E value) {
+                    return Integer.BYTES;
+                }
+
+                @Override
+                public void write(E value, ByteBuffer out) {
+                    out.putInt(value == null ? -1 : value.ordinal());
+                }
+
+                @Override
+                public E read(ByteBuffer in) {
+                    int ordinal = in.getInt();
+                    return ordinal < 0 ? null : constants[ordinal];
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,616 @@
+package GridLib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A grid of <code>boolean</code> values packed 64 per <code>long</code>, with
+ * the same navigation methods as {@link Grid}. Each row starts on a new word,
+ * so a whole row of cells is read and written 64 cells at a time: the bulk
+ * operations between grids, the counts, and the morphological and neighbour
+ * counting operations work word by word instead of cell by cell, and the grid
+ * takes 64 times less memory than a <code>Grid&lt;Boolean&gt;</code>'s
+ * references alone.
+ * <p>
+ * The {@link Cell} handles are only created when they are asked for and read
+ * and write directly in this grid. The cells outside of the grid are
+ * considered false by the neighbourhood operations.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see Grid
+ */
+public class BitGrid extends AbstractGrid<BitGrid.Cell> {
+
+    final long[] words;
+    final int wordsPerRow;
+    private final long lastWordMask;
+
+    /**
+     * Construct a BitGrid with the specified height and width and fill the
+     * cells with the provided generator.
+     *
+     * @param height the height of this grid
+     * @param width the width of this grid
+     * @param generator a tool that is use to generate the content of each cell
+     */
+    public BitGrid(int height, int width, BitCellValueGenerator generator) {
+        this(height, width);
+        regenerateCells(generator);
+    }
+
+    /**
+     * Construct a BitGrid with the specified height and width and fill the
+     * cells with the provided value.
+     *
+     * @param initial the initial value of each cell
+     * @param height the height of this grid
+     * @param width the width of this grid
+     */
+    public BitGrid(boolean initial, int height, int width) {
+        this(height, width);
+        fill(initial);
+    }
+
+    /**
+     * Construct a BitGrid with the specified height and width and fill the
+     * cells with false.
+     *
+     * @param height the height of this grid
+     * @param width the width of this grid
+     */
+    public BitGrid(int height, int width) {
+        super(height, width);
+        wordsPerRow = (width + 63) >>> 6;
+        words = new long[height * wordsPerRow];
+        lastWordMask = (width & 63) == 0 ? -1L : (1L << width) - 1;
+    }
+
+    /**
+     * Reset and generate the value of each cell with the provided generator.
+     *
+     * @param generator a tool that is use to generate the content of each cell
+     */
+    public void regenerateCells(BitCellValueGenerator generator) {
+        generateRows(generator, 0, height());
+    }
+
+    /**
+     * Reset and generate the value of each cell with the provided generator,
+     * splitting the rows in bands generated in parallel in the provided pool.
+     * The generator must then be thread-safe, and should only depend on the
+     * row and the column of the cell.
+     *
+     * @param generator a tool that is use to generate the content of each cell
+     * @param pool the pool in which the cells are generated
+     */
+    public void regenerateCells(BitCellValueGenerator generator, ForkJoinPool pool) {
+        RowBands.run(pool, height(), width(), (fromRow, toRow) -> generateRows(generator, fromRow, toRow));
+    }
+
+    private void generateRows(BitCellValueGenerator generator, int fromRow, int toRow) {
+        int width = width();
+        for (int row = fromRow; row < toRow; row++) {
+            int base = row * wordsPerRow;
+            for (int j = 0; j < wordsPerRow; j++) {
+                long word = 0;
+                int end = Math.min(64, width - (j << 6));
+                for (int b = 0; b < end; b++) {
+                    if (generator.generate(row, (j << 6) + b)) {
+                        word |= 1L << b;
+                    }
+                }
+                words[base + j] = word;
+            }
+        }
+    }
+
+    /**
+     * Set every cell to the provided value.
+     *
+     * @param value the value of each cell
+     */
+    public void fill(boolean value) {
+        Arrays.fill(words, value ? -1L : 0L);
+        if (value) {
+            clearPadding();
+        }
+    }
+
+    /**
+     * Clear the bits after the last column of each row, which must always be
+     * false.
+     */
+    private void clearPadding() {
+        if (lastWordMask != -1L) {
+            for (int i = wordsPerRow - 1; i < words.length; i += wordsPerRow) {
+                words[i] &= lastWordMask;
+            }
+        }
+    }
+
+    /**
+     * Put a value in the specified row and column.
+     *
+     * @param value the value to put
+     * @param row the row where the value is put
+     * @param column the column where the value is put
+     * @return true if the provided row and column match the height and width of
+     * this Grid, false otherwise
+     */
+    public boolean put(boolean value, int row, int column) {
+        if (contains(row, column)) {
+            write(row, column, value);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Put a value at the specified index.
+     *
+     * @param value the value to put
+     * @param index the index where the value is put
+     */
+    public void put(boolean value, int index) {
+        write(rowOf(index), columnOf(index), value);
+    }
+
+    /**
+     * Get the value in the specified row and column.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return the value of the specified cell
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public boolean get(int row, int column) {
+        checkBounds(row, column);
+        return read(row, column);
+    }
+
+    /**
+     * Get the value at the specified index.
+     *
+     * @param index the index of the cell
+     * @return the value of the cell
+     */
+    public boolean get(int index) {
+        return read(rowOf(index), columnOf(index));
+    }
+
+    private boolean read(int row, int column) {
+        return (words[row * wordsPerRow + (column >>> 6)] & 1L << column) != 0;
+    }
+
+    private void write(int row, int column, boolean value) {
+        int i = row * wordsPerRow + (column >>> 6);
+        if (value) {
+            words[i] |= 1L << column;
+        } else {
+            words[i] &= ~(1L << column);
+        }
+    }
+
+    /**
+     * Returns the list of the adjacent cells of the provided cell.
+     *
+     * @param cell the cell whose adjacents are searched
+     * @param deleteNulls true to remove the cells outside of the grid
+     * @return an ArrayList of the adjacent cells
+     */
+    public ArrayList<Cell> getAdjacents(Cell cell, boolean deleteNulls) {
+        return getAdjacents(cell.getRow(), cell.getColumn(), deleteNulls);
+    }
+
+    /**
+     * Returns the list of the diagonally adjacent cells of the provided cell.
+     *
+     * @param cell the cell whose diagonal adjacents are searched
+     * @param deleteNulls true to remove the cells outside of the grid
+     * @return an ArrayList of the diagonally adjacent cells
+     */
+    public ArrayList<Cell> getDiagonalsAdjacents(Cell cell, boolean deleteNulls) {
+        return getDiagonalsAdjacents(cell.getRow(), cell.getColumn(), deleteNulls);
+    }
+
+    @Override
+    protected Cell cellAt(int index) {
+        return new Cell(index);
+    }
+
+    /**
+     * Returns a copy of this grid.
+     *
+     * @return a new grid with the same values
+     */
+    public BitGrid copy() {
+        BitGrid copy = new BitGrid(height(), width());
+        System.arraycopy(words, 0, copy.words, 0, words.length);
+        return copy;
+    }
+
+    /**
+     * Set each cell to true if it is true in this grid and in the other one.
+     *
+     * @param other a grid of the same size
+     * @throws IllegalArgumentException if the grids have not the same size
+     */
+    public void and(BitGrid other) {
+        checkSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+    }
+
+    /**
+     * Set each cell to true if it is true in this grid or in the other one.
+     *
+     * @param other a grid of the same size
+     * @throws IllegalArgumentException if the grids have not the same size
+     */
+    public void or(BitGrid other) {
+        checkSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Set each cell to true if it is true in only one of this grid and the
+     * other one.
+     *
+     * @param other a grid of the same size
+     * @throws IllegalArgumentException if the grids have not the same size
+     */
+    public void xor(BitGrid other) {
+        checkSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] ^= other.words[i];
+        }
+    }
+
+    /**
+     * Set to false each cell that is true in the other grid.
+     *
+     * @param other a grid of the same size
+     * @throws IllegalArgumentException if the grids have not the same size
+     */
+    public void andNot(BitGrid other) {
+        checkSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    /**
+     * Invert every cell.
+     */
+    public void not() {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = ~words[i];
+        }
+        clearPadding();
+    }
+
+    private void checkSize(BitGrid other) {
+        if (other.height() != height() || other.width() != width()) {
+            throw new IllegalArgumentException("Grids of different sizes: " + height() + "x" + width()
+                    + " and " + other.height() + "x" + other.width());
+        }
+    }
+
+    /**
+     * Returns the number of true cells.
+     *
+     * @return the number of true cells of the grid
+     */
+    public int count() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of true cells of a rectangle. The parts of the
+     * rectangle outside of the grid are ignored.
+     *
+     * @param row the first row of the rectangle
+     * @param column the first column of the rectangle
+     * @param height the number of rows of the rectangle
+     * @param width the number of columns of the rectangle
+     * @return the number of true cells of the rectangle
+     */
+    public int count(int row, int column, int height, int width) {
+        int r0 = Math.max(0, row);
+        int r1 = (int) Math.min(height(), (long) row + height);
+        int c0 = Math.max(0, column);
+        int c1 = (int) Math.min(width(), (long) column + width);
+        if (r1 <= r0 || c1 <= c0) {
+            return 0;
+        }
+        int firstWord = c0 >>> 6;
+        int lastWord = (c1 - 1) >>> 6;
+        long firstMask = -1L << c0;
+        long lastMask = -1L >>> (63 - ((c1 - 1) & 63));
+        int count = 0;
+        for (int r = r0; r < r1; r++) {
+            int base = r * wordsPerRow;
+            if (firstWord == lastWord) {
+                count += Long.bitCount(words[base + firstWord] & firstMask & lastMask);
+            } else {
+                count += Long.bitCount(words[base + firstWord] & firstMask);
+                for (int j = firstWord + 1; j < lastWord; j++) {
+                    count += Long.bitCount(words[base + j]);
+                }
+                count += Long.bitCount(words[base + lastWord] & lastMask);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the 64 cells of a row starting at the specified column, which
+     * can be outside of the row: bit <code>b</code> of the returned word is
+     * the cell at <code>column + b</code>, false if it is outside of the grid.
+     */
+    private long window(int row, int column) {
+        if (row < 0 || row >= height()) {
+            return 0;
+        }
+        int base = row * wordsPerRow;
+        int word = column >> 6;
+        int shift = column & 63;
+        long low = word >= 0 && word < wordsPerRow ? words[base + word] : 0;
+        if (shift == 0) {
+            return low;
+        }
+        long high = word + 1 >= 0 && word + 1 < wordsPerRow ? words[base + word + 1] : 0;
+        return low >>> shift | high << (64 - shift);
+    }
+
+    /**
+     * Returns a grid whose cells are true if the same cell of this grid or
+     * one of its neighbours is true.
+     *
+     * @param neighbourhood the neighbours of each cell
+     * @return the dilation of this grid
+     */
+    public BitGrid dilate(Neighbourhood neighbourhood) {
+        BitGrid result = copy();
+        int[] rowOffsets = neighbourhood.rowOffsets;
+        for (int row = 0; row < height(); row++) {
+            int base = row * wordsPerRow;
+            int[] columnOffsets = neighbourhood.columnOffsets(row);
+            for (int j = 0; j < wordsPerRow; j++) {
+                long word = result.words[base + j];
+                for (int k = 0; k < rowOffsets.length; k++) {
+                    word |= window(row + rowOffsets[k], (j << 6) + columnOffsets[k]);
+                }
+                result.words[base + j] = word;
+            }
+        }
+        result.clearPadding();
+        return result;
+    }
+
+    /**
+     * Returns a grid whose cells are true if the same cell of this grid and
+     * all its neighbours are true. The cells on the borders of the grid,
+     * whose neighbourhood is partly outside of it, are then false.
+     *
+     * @param neighbourhood the neighbours of each cell
+     * @return the erosion of this grid
+     */
+    public BitGrid erode(Neighbourhood neighbourhood) {
+        BitGrid result = copy();
+        int[] rowOffsets = neighbourhood.rowOffsets;
+        for (int row = 0; row < height(); row++) {
+            int base = row * wordsPerRow;
+            int[] columnOffsets = neighbourhood.columnOffsets(row);
+            for (int j = 0; j < wordsPerRow; j++) {
+                long word = result.words[base + j];
+                for (int k = 0; k < rowOffsets.length && word != 0; k++) {
+                    word &= window(row + rowOffsets[k], (j << 6) + columnOffsets[k]);
+                }
+                result.words[base + j] = word;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Count the true neighbours of the 64 cells of a word, as a number in
+     * binary whose bit <code>i</code> is in <code>slices[i]</code>. Each
+     * neighbour is added to the 64 counts at once by a ripple-carry adder.
+     */
+    private void countNeighbours(int row, int j, int[] rowOffsets, int[] columnOffsets, long[] slices) {
+        Arrays.fill(slices, 0);
+        for (int k = 0; k < rowOffsets.length; k++) {
+            long carry = window(row + rowOffsets[k], (j << 6) + columnOffsets[k]);
+            for (int i = 0; i < slices.length && carry != 0; i++) {
+                long sum = slices[i] ^ carry;
+                carry &= slices[i];
+                slices[i] = sum;
+            }
+        }
+    }
+
+    private static long[] slicesFor(Neighbourhood neighbourhood) {
+        return new long[32 - Integer.numberOfLeadingZeros(neighbourhood.size())];
+    }
+
+    /**
+     * Returns the number of true neighbours of each cell.
+     *
+     * @param neighbourhood the neighbours of each cell
+     * @return a grid of the same size holding the count of each cell
+     */
+    public IntGrid neighbourCounts(Neighbourhood neighbourhood) {
+        IntGrid counts = new IntGrid(height(), width());
+        long[] slices = slicesFor(neighbourhood);
+        int width = width();
+        for (int row = 0; row < height(); row++) {
+            for (int j = 0; j < wordsPerRow; j++) {
+                countNeighbours(row, j, neighbourhood.rowOffsets, neighbourhood.columnOffsets(row), slices);
+                int end = Math.min(64, width - (j << 6));
+                int base = row * width + (j << 6);
+                for (int b = 0; b < end; b++) {
+                    int count = 0;
+                    for (int i = 0; i < slices.length; i++) {
+                        count |= (int) (slices[i] >>> b & 1) << i;
+                    }
+                    counts.values[base + b] = count;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the next generation of a Life-like automaton: a false cell
+     * becomes true if its number of true neighbours is in the birth mask, and
+     * a true cell stays true if it is in the survival mask. Bit
+     * <code>n</code> of a mask stands for <code>n</code> true neighbours; the
+     * Game of Life is
+     * <code>applyCountRule(Neighbourhood.MOORE, 1 &lt;&lt; 3, 1 &lt;&lt; 2 | 1 &lt;&lt; 3)</code>.
+     * The rule is applied to 64 cells at once, comparing their bit-sliced
+     * neighbour counts to each count of the masks.
+     *
+     * @param neighbourhood the neighbours of each cell, at most 31
+     * @param birth the birth mask
+     * @param survival the survival mask
+     * @return a new grid holding the next generation
+     * @throws IllegalArgumentException if the neighbourhood has more than 31
+     * cells
+     */
+    public BitGrid applyCountRule(Neighbourhood neighbourhood, int birth, int survival) {
+        if (neighbourhood.size() > 31) {
+            throw new IllegalArgumentException("Too many neighbours for a count mask: " + neighbourhood.size());
+        }
+        BitGrid next = new BitGrid(height(), width());
+        long[] slices = slicesFor(neighbourhood);
+        int masks = birth | survival;
+        for (int row = 0; row < height(); row++) {
+            int base = row * wordsPerRow;
+            for (int j = 0; j < wordsPerRow; j++) {
+                countNeighbours(row, j, neighbourhood.rowOffsets, neighbourhood.columnOffsets(row), slices);
+                long born = 0;
+                long survive = 0;
+                for (int n = 0; n <= neighbourhood.size(); n++) {
+                    if ((masks >>> n & 1) == 0) {
+                        continue;
+                    }
+                    long equal = -1L;
+                    for (int i = 0; i < slices.length; i++) {
+                        equal &= (n >>> i & 1) != 0 ? slices[i] : ~slices[i];
+                    }
+                    if ((birth >>> n & 1) != 0) {
+                        born |= equal;
+                    }
+                    if ((survival >>> n & 1) != 0) {
+                        survive |= equal;
+                    }
+                }
+                long current = words[base + j];
+                next.words[base + j] = current & survive | ~current & born;
+            }
+        }
+        next.clearPadding();
+        return next;
+    }
+
+    /**
+     * A lightweight handle on a cell of a {@link BitGrid}. It does not hold
+     * the value but reads and writes it directly in the grid, so two handles
+     * on the same cell are equal.
+     */
+    public final class Cell {
+
+        private final int index;
+
+        private Cell(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Get the index of this Cell in its grid.
+         *
+         * @return the index of this Cell
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Get the row number of this Cell.
+         *
+         * @return the row number of this Cell
+         */
+        public int getRow() {
+            return rowOf(index);
+        }
+
+        /**
+         * Get the column number of this Cell.
+         *
+         * @return the column number of this Cell
+         */
+        public int getColumn() {
+            return columnOf(index);
+        }
+
+        /**
+         * Get the value of this Cell.
+         *
+         * @return the value of this Cell
+         */
+        public boolean get() {
+            return read(rowOf(index), columnOf(index));
+        }
+
+        /**
+         * Set the value of this Cell.
+         *
+         * @param value the new value
+         */
+        public void set(boolean value) {
+            write(rowOf(index), columnOf(index), value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Cell && ((Cell) obj).grid() == BitGrid.this
+                    && ((Cell) obj).index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        private BitGrid grid() {
+            return BitGrid.this;
+        }
+    }
+
+    /**
+     * A generator that generate a <code>boolean</code> cell value by its row
+     * and column number.
+     */
+    public interface BitCellValueGenerator {
+
+        /**
+         * Generate the value of a Cell.
+         *
+         * @param row the row of the Cell
+         * @param column the column of the Cell
+         * @return the generated value
+         */
+        boolean generate(int row, int column);
+    }
+}
@@ -0,0 +1,296 @@
+package GridLib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A grid of <code>byte</code> values with the same navigation methods as
+ * {@link Grid}. The values are stored row after row in a single
+ * <code>byte</code> array, so there is no object per cell: the {@link Cell}
+ * handles are only created when they are asked for (by
+ * {@link #getCell(int, int)}, {@link #getRow(int)} etc.) and read and write
+ * directly in this grid.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see Grid
+ */
+public class ByteGrid extends AbstractGrid<ByteGrid.Cell> {
+
+    final byte[] values;
+
+    /**
+     * Construct a ByteGrid with the specified height and width and fill the
+     * cells with the provided generator.
+     *
+     * @param height the height of this grid
+     * @param width the width of this grid
+     * @param generator a tool that is use to generate the content of each cell
+     */
+    public ByteGrid(int height, int width, ByteCellValueGenerator generator) {
+        super(height, width);
+        values = new byte[height * width];
+        regenerateCells(generator);
+    }
+
+    /**
+     * Construct a ByteGrid with the specified height and width and fill the
+     * cells with the provided value.
+     *
+     * @param initial the initial value of each cell
+     * @param height the height of this grid
+     * @param width the width of this grid
+     */
+    public ByteGrid(byte initial, int height, int width) {
+        super(height, width);
+        values = new byte[height * width];
+        fill(initial);
+    }
+
+    /**
+     * Construct a ByteGrid with the specified height and width and fill the
+     * cells with zeros.
+     *
+     * @param height the height of this grid
+     * @param width the width of this grid
+     */
+    public ByteGrid(int height, int width) {
+        super(height, width);
+        values = new byte[height * width];
+    }
+
+    /**
+     * Reset and generate the value of each cell with the provided generator.
+     *
+     * @param generator a tool that is use to generate the content of each cell
+     */
+    public void regenerateCells(ByteCellValueGenerator generator) {
+        int width = width();
+        for (int row = 0, i = 0; row < height(); row++) {
+            for (int column = 0; column < width; column++, i++) {
+                values[i] = generator.generate(row, column);
+            }
+        }
+    }
+
+    /**
+     * Reset and generate the value of each cell with the provided generator,
+     * splitting the rows in bands generated in parallel in the provided pool.
+     * The generator is then called from several threads at once, see
+     * {@link Grid.CellValueGenerator} for its contract.
+     *
+     * @param generator a tool that is use to generate the content of each cell
+     * @param pool the pool in which the cells are generated
+     */
+    public void regenerateCells(ByteCellValueGenerator generator, ForkJoinPool pool) {
+        int width = width();
+        RowBands.run(pool, height(), width, (fromRow, toRow) -> {
+            for (int row = fromRow, i = fromRow * width; row < toRow; row++) {
+                for (int column = 0; column < width; column++, i++) {
+                    values[i] = generator.generate(row, column);
+                }
+            }
+        });
+    }
+
+    /**
+     * Set the value of every cell to the provided one.
+     *
+     * @param value the new value of each cell
+     */
+    public void fill(byte value) {
+        Arrays.fill(values, value);
+    }
+
+    /**
+     * Put a value in the specified row and column.
+     *
+     * @param value the value to put
+     * @param row the row where the value is put
+     * @param column the column where the value is put
+     * @return true if the provided row and column match the height and width of
+     * this grid, false otherwise
+     */
+    public boolean put(byte value, int row, int column) {
+        if (contains(row, column)) {
+            values[index(row, column)] = value;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Put a value at the specified index.
+     *
+     * @param value the value to put
+     * @param index the index where the value is put
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public void put(byte value, int index) {
+        values[index] = value;
+    }
+
+    /**
+     * Get the value in the specified row and column.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return the value of the specified cell
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public byte get(int row, int column) {
+        checkBounds(row, column);
+        return values[index(row, column)];
+    }
+
+    /**
+     * Get the value at the specified index.
+     *
+     * @param index the specified index
+     * @return the value at the specified index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public byte get(int index) {
+        return values[index];
+    }
+
+    /**
+     * get the adjacents cells of the specified one.
+     *
+     * @param cell the specified cell
+     * @param deleteNulls if set to true, delete the non-existant cells (when
+     * the specified cell is in a border or a corner)
+     * @return a list containing the adjacents cells in the order defined by the
+     * {@link #TOP}, {@link #RIGHT}, {@link #BOTTOM} and {@link #LEFT}
+     * constants
+     * @see #getAdjacents(int, int, boolean)
+     */
+    public ArrayList<Cell> getAdjacents(Cell cell, boolean deleteNulls) {
+        return getAdjacents(cell.getRow(), cell.getColumn(), deleteNulls);
+    }
+
+    /**
+     * get the diagonal-adjacents cells of the specified one.
+     *
+     * @param cell the specified cell
+     * @param deleteNulls if set to true, delete the non-existant cells (when
+     * the specified cell is in a border or a corner)
+     * @return a list containing the diagonal-adjacents cells in the order
+     * defined by the {@link #TOP_LEFT}, {@link #TOP_RIGHT},
+     * {@link #BOTTOM_RIGHT} and {@link #BOTTOM_LEFT} constants
+     * @see #getDiagonalsAdjacents(int, int, boolean)
+     */
+    public ArrayList<Cell> getDiagonalsAdjacents(Cell cell, boolean deleteNulls) {
+        return getDiagonalsAdjacents(cell.getRow(), cell.getColumn(), deleteNulls);
+    }
+
+    /**
+     * Returns a sequential stream of the values of this grid, row after row. The bytes are
+     * widened to <code>int</code>.
+     * Use {@link IntStream#parallel()} to process them by bands of whole rows in
+     * parallel.
+     *
+     * @return a stream of the values of this grid
+     */
+    public IntStream valueStream() {
+        return indexStream().map(i -> values[i]);
+    }
+
+    @Override
+    protected Cell cellAt(int index) {
+        return new Cell(index);
+    }
+
+    /**
+     * A lightweight handle on a cell of a {@link ByteGrid}. It does not hold
+     * the value but reads and writes it directly in the grid, so two handles
+     * on the same cell are equal.
+     */
+    public final class Cell {
+
+        private final int index;
+
+        private Cell(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Get the index of this Cell in its grid.
+         *
+         * @return the index of this Cell
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Get the row number of this Cell.
+         *
+         * @return the row number of this Cell
+         */
+        public int getRow() {
+            return rowOf(index);
+        }
+
+        /**
+         * Get the column number of this Cell.
+         *
+         * @return the column number of this Cell
+         */
+        public int getColumn() {
+            return columnOf(index);
+        }
+
+        /**
+         * Get the value of this Cell.
+         *
+         * @return the value of this Cell
+         */
+        public byte get() {
+            return values[index];
+        }
+
+        /**
+         * Set the value of this Cell.
+         *
+         * @param value the new value
+         */
+        public void set(byte value) {
+            values[index] = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Cell && ((Cell) obj).grid() == ByteGrid.this
+                    && ((Cell) obj).index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        private ByteGrid grid() {
+            return ByteGrid.this;
+        }
+    }
+
+    /**
+     * A generator that generate a <code>byte</code> cell value by its row and
+     * column number.
+     */
+    public interface ByteCellValueGenerator {
+
+        /**
+         * Generate a value for a Cell.
+         *
+         * @param row the row of the Cell
+         * @param column the column of the Cell
+         * @return the generated value
+         */
+        byte generate(int row, int column);
+    }
+}
@@ -0,0 +1,420 @@
+package GridLib;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A cellular automaton computing the generations of an {@link IntGrid}. The
+ * automaton owns two grids of the same size: the front one holds the current
+ * generation, and the next one is computed in the back one before they are
+ * swapped, which costs nothing. The {@link Rule} is called with a reusable
+ * {@link Neighbours} cursor, so a generation does not allocate anything per
+ * cell.
+ * <p>
+ * The grid is split in tiles of 32 x 32 cells, and only the active tiles are
+ * computed: a tile is active if one of its cells, or one of the cells close
+ * enough to be in the neighbourhood of its cells, changed during the previous
+ * generation. The cells of an inactive tile keep their state, so the rule
+ * must give the same state to a cell whose neighbourhood did not change, as
+ * most automata do. Every tile is active for the first generation.
+ * <p>
+ * The cells outside of the grid are in a fixed state, whatever the
+ * {@link Topology} of the initial grid.
+ * <p>
+ * The generations are computed by bands of rows, in parallel when a pool is
+ * provided. A CellularAutomaton is not thread-safe: it must not be modified
+ * while a generation is computed.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see IntGrid
+ */
+public class CellularAutomaton {
+
+    private static final int TILE_SHIFT = 5;
+
+    private final Neighbourhood neighbourhood;
+    private final Rule rule;
+    private final int outside;
+    private final int height;
+    private final int width;
+    private final int tileRows;
+    private final int tileColumns;
+    private final int tileReach;
+    private IntGrid front;
+    private IntGrid back;
+    private final FlagSet active;
+    private final FlagSet changed;
+    private long generation;
+
+    /**
+     * Construct a CellularAutomaton whose first generation is a copy of the
+     * provided grid. The cells outside of the grid are in the state 0.
+     *
+     * @param initial the first generation
+     * @param neighbourhood the neighbourhood of each cell
+     * @param rule the rule computing the next state of each cell
+     */
+    public CellularAutomaton(IntGrid initial, Neighbourhood neighbourhood, Rule rule) {
+        this(initial, neighbourhood, rule, 0);
+    }
+
+    /**
+     * Construct a CellularAutomaton whose first generation is a copy of the
+     * provided grid.
+     *
+     * @param initial the first generation
+     * @param neighbourhood the neighbourhood of each cell
+     * @param rule the rule computing the next state of each cell
+     * @param outside the state of the cells outside of the grid
+     */
+    public CellularAutomaton(IntGrid initial, Neighbourhood neighbourhood, Rule rule, int outside) {
+        this.neighbourhood = neighbourhood;
+        this.rule = rule;
+        this.outside = outside;
+        this.height = initial.height();
+        this.width = initial.width();
+        this.front = new IntGrid(height, width);
+        this.back = new IntGrid(height, width);
+        System.arraycopy(initial.values, 0, front.values, 0, front.values.length);
+        System.arraycopy(initial.values, 0, back.values, 0, back.values.length);
+        this.tileRows = (height + (1 << TILE_SHIFT) - 1) >>> TILE_SHIFT;
+        this.tileColumns = (width + (1 << TILE_SHIFT) - 1) >>> TILE_SHIFT;
+        this.tileReach = (neighbourhood.radius() + (1 << TILE_SHIFT) - 1) >>> TILE_SHIFT;
+        this.active = FlagSet.create(tileRows * tileColumns);
+        this.changed = FlagSet.concurrent(tileRows * tileColumns);
+        activateAll();
+    }
+
+    /**
+     * Returns the grid holding the current generation. The returned grid is
+     * swapped at each generation, so it must be asked again after a step. If
+     * it is modified directly, {@link #activateAll()} must be called before
+     * the next step; prefer {@link #set(int, int, int)}.
+     *
+     * @return the current generation
+     */
+    public IntGrid getGrid() {
+        return front;
+    }
+
+    /**
+     * Returns the number of generations computed since the creation of this
+     * automaton.
+     *
+     * @return the number of the current generation
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Get the state of the specified cell in the current generation.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the state of the cell
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public int get(int row, int column) {
+        return front.get(row, column);
+    }
+
+    /**
+     * Set the state of the specified cell in the current generation, and
+     * activate the tiles around it for the next step.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @param state the new state of the cell
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public void set(int row, int column, int state) {
+        if (front.get(row, column) != state) {
+            front.values[front.index(row, column)] = state;
+            changed.set((row >>> TILE_SHIFT) * tileColumns + (column >>> TILE_SHIFT));
+            activateChanged();
+        }
+    }
+
+    /**
+     * Activate every tile for the next step.
+     */
+    public void activateAll() {
+        for (int t = 0; t < active.size(); t++) {
+            active.set(t);
+        }
+    }
+
+    /**
+     * Returns the number of tiles that the next step will compute.
+     *
+     * @return the number of active tiles
+     */
+    public int activeTiles() {
+        return active.cardinality();
+    }
+
+    /**
+     * Compute the next generation in the current thread.
+     *
+     * @return true if at least one cell changed
+     */
+    public boolean step() {
+        new Band().run(0, height);
+        return finishStep();
+    }
+
+    /**
+     * Compute the next generation by bands of rows in the provided pool.
+     *
+     * @param pool the pool in which the bands are computed
+     * @return true if at least one cell changed
+     */
+    public boolean step(ForkJoinPool pool) {
+        RowBands.run(pool, height, width, (fromRow, toRow) -> new Band().run(fromRow, toRow));
+        return finishStep();
+    }
+
+    /**
+     * Compute the specified number of generations, stopping early if a
+     * generation does not change anything.
+     *
+     * @param generations the number of generations to compute
+     * @param pool the pool in which the bands are computed, or null to compute
+     * them in the current thread
+     * @return the number of generations computed
+     */
+    public int run(int generations, ForkJoinPool pool) {
+        for (int i = 0; i < generations; i++) {
+            if (!(pool == null ? step() : step(pool))) {
+                return i + 1;
+            }
+        }
+        return generations;
+    }
+
+    private boolean finishStep() {
+        IntGrid swap = front;
+        front = back;
+        back = swap;
+        generation++;
+        boolean any = !changed.isEmpty();
+        active.clear();
+        activateChanged();
+        return any;
+    }
+
+    /**
+     * Activate the tiles around the changed ones, then forget the changes.
+     */
+    private void activateChanged() {
+        changed.forEach(t -> {
+            int tileRow = t / tileColumns;
+            int tileColumn = t - tileRow * tileColumns;
+            for (int r = Math.max(0, tileRow - tileReach); r <= Math.min(tileRows - 1, tileRow + tileReach); r++) {
+                for (int c = Math.max(0, tileColumn - tileReach); c <= Math.min(tileColumns - 1, tileColumn + tileReach); c++) {
+                    active.set(r * tileColumns + c);
+                }
+            }
+        });
+        changed.clear();
+    }
+
+    /**
+     * The computation of the active cells of a band of rows, with its own
+     * cursor.
+     */
+    private final class Band {
+
+        private final Cursor cursor = new Cursor();
+
+        private void run(int fromRow, int toRow) {
+            int[] src = front.values;
+            int[] dst = back.values;
+            int tileSize = 1 << TILE_SHIFT;
+            for (int row = fromRow; row < toRow; row++) {
+                int tileBase = (row >>> TILE_SHIFT) * tileColumns;
+                for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+                    if (!active.get(tileBase + tileColumn)) {
+                        continue;
+                    }
+                    boolean tileChanged = false;
+                    int end = Math.min(width, (tileColumn + 1) * tileSize);
+                    for (int column = tileColumn * tileSize; column < end; column++) {
+                        int i = row * width + column;
+                        cursor.moveTo(src, i, row, column);
+                        int next = rule.next(src[i], cursor);
+                        dst[i] = next;
+                        tileChanged |= next != src[i];
+                    }
+                    if (tileChanged && !changed.get(tileBase + tileColumn)) {
+                        changed.set(tileBase + tileColumn);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The neighbours of the cell being computed, read in the front grid.
+     */
+    private final class Cursor implements Neighbours {
+
+        private final int[] evenOffsets = neighbourhood.offsets(width, 0);
+        private final int[] oddOffsets = neighbourhood.offsets(width, 1);
+        private final int[] states = new int[neighbourhood.size()];
+        private final int radius = neighbourhood.radius();
+        private int row;
+        private int column;
+
+        private void moveTo(int[] src, int index, int row, int column) {
+            this.row = row;
+            this.column = column;
+            int[] offsets = (row & 1) == 0 ? evenOffsets : oddOffsets;
+            if (row >= radius && column >= radius && row < height - radius && column < width - radius) {
+                for (int k = 0; k < offsets.length; k++) {
+                    states[k] = src[index + offsets[k]];
+                }
+            } else {
+                int[] rowOffsets = neighbourhood.rowOffsets;
+                int[] columnOffsets = neighbourhood.columnOffsets(row);
+                for (int k = 0; k < offsets.length; k++) {
+                    int r = row + rowOffsets[k];
+                    int c = column + columnOffsets[k];
+                    states[k] = r >= 0 && c >= 0 && r < height && c < width ? src[index + offsets[k]] : outside;
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return states.length;
+        }
+
+        @Override
+        public int get(int neighbour) {
+            return states[neighbour];
+        }
+
+        @Override
+        public int count(int state) {
+            int n = 0;
+            for (int s : states) {
+                if (s == state) {
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public int sum() {
+            int sum = 0;
+            for (int s : states) {
+                sum += s;
+            }
+            return sum;
+        }
+
+        @Override
+        public int row() {
+            return row;
+        }
+
+        @Override
+        public int column() {
+            return column;
+        }
+    }
+
+    /**
+     * The states of the neighbours of a cell, in the order of the
+     * {@link Neighbourhood} of the automaton. A Neighbours cursor is reused
+     * for every cell, so it must not be kept by the rule.
+     */
+    public interface Neighbours {
+
+        /**
+         * Returns the number of neighbours.
+         *
+         * @return the size of the neighbourhood
+         */
+        int size();
+
+        /**
+         * Returns the state of the specified neighbour.
+         *
+         * @param neighbour the number of the neighbour in the neighbourhood
+         * @return the state of the neighbour
+         */
+        int get(int neighbour);
+
+        /**
+         * Returns the number of neighbours in the specified state.
+         *
+         * @param state the state to count
+         * @return the number of neighbours in this state
+         */
+        int count(int state);
+
+        /**
+         * Returns the sum of the states of the neighbours.
+         *
+         * @return the sum of the states
+         */
+        int sum();
+
+        /**
+         * Returns the row of the cell being computed.
+         *
+         * @return the row of the cell
+         */
+        int row();
+
+        /**
+         * Returns the column of the cell being computed.
+         *
+         * @return the column of the cell
+         */
+        int column();
+    }
+
+    /**
+     * The rule computing the next state of a cell. When the generations are
+     * computed in parallel, the rule is called from several threads at once.
+     */
+    public interface Rule {
+
+        /**
+         * Compute the next state of a cell.
+         *
+         * @param state the current state of the cell
+         * @param neighbours the current states of its neighbours
+         * @return the next state of the cell
+         */
+        int next(int state, Neighbours neighbours);
+
+        /**
+         * Returns a Life-like rule for two-state automata: a dead cell (0)
+         * becomes alive (1) if its number of living neighbours is in the
+         * birth mask, and a living cell stays alive if it is in the survival
+         * mask. Bit <code>n</code> of a mask stands for <code>n</code>
+         * living neighbours; the Game of Life is
+         * <code>lifeLike(1 &lt;&lt; 3, 1 &lt;&lt; 2 | 1 &lt;&lt; 3)</code>
+         * with the {@link Neighbourhood#MOORE} neighbourhood.
+         *
+         * @param birth the birth mask
+         * @param survival the survival mask
+         * @return a Life-like rule
+         */
+        static Rule lifeLike(int birth, int survival) {
+            return (state, neighbours) -> {
+                int alive = neighbours.sum();
+                int mask = state == 0 ? birth : survival;
+                return (mask >>> alive & 1) != 0 ? 1 : 0;
+            };
+        }
+    }
+}
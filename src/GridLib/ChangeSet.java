@@ -0,0 +1,236 @@
+package GridLib;
+
+import GridLib.Grid.Cell;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * The cells of a {@link Grid} modified together, with their value before and
+ * after the modification. A cell modified several times in a
+ * {@link Grid#batch(java.util.function.Consumer) batch} appears only once,
+ * with its value before the batch and its value at the end of it; a cell set
+ * back to its first value does not appear at all.
+ * <p>
+ * A ChangeSet also summarizes the modified cells with the smallest rectangle
+ * containing all of them.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see Grid.GridListener
+ * @param <E> the class that the grid contains
+ */
+public final class ChangeSet<E> {
+
+    private final Grid<E> grid;
+    private final int[] indexes;
+    private final Object[] oldValues;
+    private final Object[] newValues;
+    private final int size;
+    private final int minRow;
+    private final int minColumn;
+    private final int maxRow;
+    private final int maxColumn;
+
+    ChangeSet(Grid<E> grid, int[] indexes, Object[] oldValues, Object[] newValues, int size) {
+        this.grid = grid;
+        this.indexes = indexes;
+        this.oldValues = oldValues;
+        this.newValues = newValues;
+        this.size = size;
+        int width = grid.width();
+        int top = Integer.MAX_VALUE;
+        int left = Integer.MAX_VALUE;
+        int bottom = -1;
+        int right = -1;
+        for (int i = 0; i < size; i++) {
+            int row = indexes[i] / width;
+            int column = indexes[i] - row * width;
+            top = Math.min(top, row);
+            bottom = Math.max(bottom, row);
+            left = Math.min(left, column);
+            right = Math.max(right, column);
+        }
+        this.minRow = top;
+        this.minColumn = left;
+        this.maxRow = bottom;
+        this.maxColumn = right;
+    }
+
+    /**
+     * Returns the grid whose cells were modified.
+     *
+     * @return the modified grid
+     */
+    public Grid<E> getGrid() {
+        return grid;
+    }
+
+    /**
+     * Returns the number of modified cells.
+     *
+     * @return the number of modified cells
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if no cell was modified.
+     *
+     * @return true if no cell was modified
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the index in the grid of the specified modified cell.
+     *
+     * @param i the number of the modification, from 0 to
+     * <code>size() - 1</code>
+     * @return the index of the modified cell
+     */
+    public int index(int i) {
+        check(i);
+        return indexes[i];
+    }
+
+    /**
+     * Returns the row of the specified modified cell.
+     *
+     * @param i the number of the modification
+     * @return the row of the modified cell
+     */
+    public int row(int i) {
+        return index(i) / grid.width();
+    }
+
+    /**
+     * Returns the column of the specified modified cell.
+     *
+     * @param i the number of the modification
+     * @return the column of the modified cell
+     */
+    public int column(int i) {
+        return index(i) % grid.width();
+    }
+
+    /**
+     * Returns the specified modified cell.
+     *
+     * @param i the number of the modification
+     * @return the modified cell
+     */
+    public Cell<E> cell(int i) {
+        return grid.getCells().get(index(i));
+    }
+
+    /**
+     * Returns the value of the specified cell before the modification.
+     *
+     * @param i the number of the modification
+     * @return the old value of the cell
+     */
+    @SuppressWarnings("unchecked")
+    public E oldValue(int i) {
+        check(i);
+        return (E) oldValues[i];
+    }
+
+    /**
+     * Returns the value of the specified cell after the modification.
+     *
+     * @param i the number of the modification
+     * @return the new value of the cell
+     */
+    @SuppressWarnings("unchecked")
+    public E newValue(int i) {
+        check(i);
+        return (E) newValues[i];
+    }
+
+    /**
+     * Returns the top row of the rectangle containing the modified cells.
+     *
+     * @return the top row of the modified cells, {@link Integer#MAX_VALUE} if
+     * this set is empty
+     */
+    public int minRow() {
+        return minRow;
+    }
+
+    /**
+     * Returns the left column of the rectangle containing the modified cells.
+     *
+     * @return the left column of the modified cells,
+     * {@link Integer#MAX_VALUE} if this set is empty
+     */
+    public int minColumn() {
+        return minColumn;
+    }
+
+    /**
+     * Returns the bottom row of the rectangle containing the modified cells.
+     *
+     * @return the bottom row of the modified cells, -1 if this set is empty
+     */
+    public int maxRow() {
+        return maxRow;
+    }
+
+    /**
+     * Returns the right column of the rectangle containing the modified cells.
+     *
+     * @return the right column of the modified cells, -1 if this set is empty
+     */
+    public int maxColumn() {
+        return maxColumn;
+    }
+
+    /**
+     * Call the action with the index of each modified cell, in the order of
+     * the modifications.
+     *
+     * @param action the action called with each index
+     */
+    public void forEachIndex(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(indexes[i]);
+        }
+    }
+
+    /**
+     * Returns the modifications of the cells whose index is accepted by the
+     * filter, or this set if all of them are.
+     */
+    ChangeSet<E> filter(IntPredicate filter) {
+        int[] keptIndexes = null;
+        Object[] keptOld = null;
+        Object[] keptNew = null;
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.test(indexes[i])) {
+                if (keptIndexes != null) {
+                    keptIndexes[n] = indexes[i];
+                    keptOld[n] = oldValues[i];
+                    keptNew[n] = newValues[i];
+                }
+                n++;
+            } else if (keptIndexes == null) {
+                keptIndexes = new int[size];
+                keptOld = new Object[size];
+                keptNew = new Object[size];
+                System.arraycopy(indexes, 0, keptIndexes, 0, n);
+                System.arraycopy(oldValues, 0, keptOld, 0, n);
+                System.arraycopy(newValues, 0, keptNew, 0, n);
+            }
+        }
+        return keptIndexes == null ? this : new ChangeSet<>(grid, keptIndexes, keptOld, keptNew, n);
+    }
+
+    private void check(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("index: " + i);
+        }
+    }
+}
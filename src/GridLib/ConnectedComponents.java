@@ -0,0 +1,292 @@
+package GridLib;
+
+import GridLib.Grid.Cell;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * The connected components of the cells of a grid matching a predicate. Two
+ * matching cells are connected if one is a neighbour of the other in the
+ * provided {@link Neighbourhood}, which is considered symmetric.
+ * <p>
+ * The whole grid is labelled in two linear sweeps: the first one gives each
+ * matching cell the label of its already visited neighbours and records the
+ * labels that meet in a union-find structure, the second one replaces each
+ * label by the final label of its component and computes the statistics of
+ * the components. The labels go from 1 to {@link #count()}, in the order in
+ * which the components are met row after row; the cells that do not match
+ * the predicate have the label 0.
+ * <p>
+ * The sweeps rely on a bounded grid and on neighbour offsets that are the
+ * same for every row: the grid must have the {@link Topology#BOUNDED}
+ * topology, and neighbourhoods depending on the parity of the row are not
+ * supported.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see GridCrawler#floodFill(int, Cell, Predicate, Neighbourhood)
+ */
+public class ConnectedComponents {
+
+    private final IntGrid labels;
+    private final int count;
+    private final int[] sizes;
+    private final int[] minRows;
+    private final int[] minColumns;
+    private final int[] maxRows;
+    private final int[] maxColumns;
+
+    /**
+     * Label the connected components of the cells of the specified grid
+     * matching the predicate.
+     *
+     * @param grid the grid to label
+     * @param predicate a predicate called with the index of each cell
+     * @param neighbourhood the neighbourhood defining which cells are
+     * connected, usually {@link Neighbourhood#VON_NEUMANN} or
+     * {@link Neighbourhood#MOORE}
+     * @throws IllegalArgumentException if the grid is not bounded or if the
+     * neighbourhood depends on the parity of the row
+     */
+    public ConnectedComponents(AbstractGrid<?> grid, IntPredicate predicate, Neighbourhood neighbourhood) {
+        if (grid.getTopology() != Topology.BOUNDED || neighbourhood.dependsOnRowParity()) {
+            throw new IllegalArgumentException("Only bounded grids with square neighbourhoods are supported");
+        }
+        int height = grid.height();
+        int width = grid.width();
+        labels = new IntGrid(height, width);
+        int[] label = labels.values;
+
+        // the neighbours visited before a cell in a row-major sweep
+        int n = neighbourhood.size();
+        int[] rowOffsets = new int[n];
+        int[] columnOffsets = new int[n];
+        int backward = 0;
+        for (int i = 0; i < n; i++) {
+            int dr = neighbourhood.rowOffset(i);
+            int dc = neighbourhood.columnOffset(i);
+            if (dr > 0 || (dr == 0 && dc > 0)) {
+                dr = -dr;
+                dc = -dc;
+            }
+            if ((dr != 0 || dc != 0) && !contains(rowOffsets, columnOffsets, backward, dr, dc)) {
+                rowOffsets[backward] = dr;
+                columnOffsets[backward] = dc;
+                backward++;
+            }
+        }
+        int[] offsets = new int[backward];
+        int radius = 0;
+        for (int i = 0; i < backward; i++) {
+            offsets[i] = rowOffsets[i] * width + columnOffsets[i];
+            radius = Math.max(radius, Math.max(-rowOffsets[i], Math.abs(columnOffsets[i])));
+        }
+
+        // first pass: provisional labels
+        int[] parent = new int[64];
+        int provisional = 0;
+        for (int row = 0, index = 0; row < height; row++) {
+            boolean interiorRow = row >= radius;
+            for (int column = 0; column < width; column++, index++) {
+                if (!predicate.test(index)) {
+                    continue;
+                }
+                boolean interior = interiorRow && column >= radius && column < width - radius;
+                int current = 0;
+                for (int i = 0; i < backward; i++) {
+                    if (!interior && !grid.contains(row + rowOffsets[i], column + columnOffsets[i])) {
+                        continue;
+                    }
+                    int other = label[index + offsets[i]];
+                    if (other != 0) {
+                        current = current == 0 ? find(parent, other) : union(parent, current, other);
+                    }
+                }
+                if (current == 0) {
+                    provisional++;
+                    if (provisional == parent.length) {
+                        parent = Arrays.copyOf(parent, parent.length * 2);
+                    }
+                    parent[provisional] = provisional;
+                    current = provisional;
+                }
+                label[index] = current;
+            }
+        }
+
+        // second pass: final labels and statistics
+        int[] finalLabels = new int[provisional + 1];
+        int components = 0;
+        for (int l = 1; l <= provisional; l++) {
+            int root = find(parent, l);
+            if (finalLabels[root] == 0) {
+                finalLabels[root] = ++components;
+            }
+            finalLabels[l] = finalLabels[root];
+        }
+        count = components;
+        sizes = new int[components + 1];
+        minRows = new int[components + 1];
+        minColumns = new int[components + 1];
+        maxRows = new int[components + 1];
+        maxColumns = new int[components + 1];
+        Arrays.fill(minRows, Integer.MAX_VALUE);
+        Arrays.fill(minColumns, Integer.MAX_VALUE);
+        Arrays.fill(maxRows, -1);
+        Arrays.fill(maxColumns, -1);
+        for (int row = 0, index = 0; row < height; row++) {
+            for (int column = 0; column < width; column++, index++) {
+                int l = finalLabels[label[index]];
+                if (l != 0) {
+                    label[index] = l;
+                    sizes[l]++;
+                    minRows[l] = Math.min(minRows[l], row);
+                    maxRows[l] = row;
+                    minColumns[l] = Math.min(minColumns[l], column);
+                    maxColumns[l] = Math.max(maxColumns[l], column);
+                }
+            }
+        }
+    }
+
+    /**
+     * Label the connected components of the cells of the specified Grid whose
+     * value matches the predicate.
+     *
+     * @param <E> the class that the grid contains
+     * @param grid the grid to label
+     * @param predicate a predicate called with the value of each cell
+     * @param neighbourhood the neighbourhood defining which cells are
+     * connected, usually {@link Neighbourhood#VON_NEUMANN} or
+     * {@link Neighbourhood#MOORE}
+     * @return the connected components of the matching cells
+     */
+    public static <E> ConnectedComponents of(Grid<E> grid, Predicate<? super E> predicate, Neighbourhood neighbourhood) {
+        return new ConnectedComponents(grid, i -> predicate.test(grid.getCells().get(i).get()), neighbourhood);
+    }
+
+    private static boolean contains(int[] rowOffsets, int[] columnOffsets, int n, int dr, int dc) {
+        for (int i = 0; i < n; i++) {
+            if (rowOffsets[i] == dr && columnOffsets[i] == dc) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int find(int[] parent, int l) {
+        while (parent[l] != l) {
+            parent[l] = parent[parent[l]];
+            l = parent[l];
+        }
+        return l;
+    }
+
+    private static int union(int[] parent, int a, int b) {
+        a = find(parent, a);
+        b = find(parent, b);
+        if (a < b) {
+            parent[b] = a;
+            return a;
+        }
+        parent[a] = b;
+        return b;
+    }
+
+    /**
+     * Returns the number of connected components.
+     *
+     * @return the number of connected components
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns the grid of the labels of each cell. A cell that does not match
+     * the predicate has the label 0, the others the label of their component,
+     * from 1 to {@link #count()}.
+     *
+     * @return the grid of the labels
+     */
+    public IntGrid getLabels() {
+        return labels;
+    }
+
+    /**
+     * Returns the label of the specified cell.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the label of the specified cell, 0 if it does not match the
+     * predicate
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public int label(int row, int column) {
+        return labels.get(row, column);
+    }
+
+    /**
+     * Returns the number of cells of the specified component.
+     *
+     * @param label the label of the component
+     * @return the number of cells of the component
+     * @throws IndexOutOfBoundsException if there is no such component
+     */
+    public int size(int label) {
+        return sizes[check(label)];
+    }
+
+    /**
+     * Returns the top row of the bounding box of the specified component.
+     *
+     * @param label the label of the component
+     * @return the top row of the component
+     * @throws IndexOutOfBoundsException if there is no such component
+     */
+    public int minRow(int label) {
+        return minRows[check(label)];
+    }
+
+    /**
+     * Returns the left column of the bounding box of the specified component.
+     *
+     * @param label the label of the component
+     * @return the left column of the component
+     * @throws IndexOutOfBoundsException if there is no such component
+     */
+    public int minColumn(int label) {
+        return minColumns[check(label)];
+    }
+
+    /**
+     * Returns the bottom row of the bounding box of the specified component.
+     *
+     * @param label the label of the component
+     * @return the bottom row of the component
+     * @throws IndexOutOfBoundsException if there is no such component
+     */
+    public int maxRow(int label) {
+        return maxRows[check(label)];
+    }
+
+    /**
+     * Returns the right column of the bounding box of the specified component.
+     *
+     * @param label the label of the component
+     * @return the right column of the component
+     * @throws IndexOutOfBoundsException if there is no such component
+     */
+    public int maxColumn(int label) {
+        return maxColumns[check(label)];
+    }
+
+    private int check(int label) {
+        if (label < 1 || label > count) {
+            throw new IndexOutOfBoundsException("label: " + label);
+        }
+        return label;
+    }
+}
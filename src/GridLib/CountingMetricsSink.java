@@ -0,0 +1,198 @@
+package GridLib;
+
+import GridLib.GridMetrics.Metric;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link GridMetrics.Sink} counting the operations in memory, to be scraped
+ * by a monitoring system. For each {@link Metric}, it counts the operations,
+ * their cells and their total duration, and keeps two histograms of their
+ * durations and of their cells. The buckets of a histogram are powers of two:
+ * bucket 0 counts the zeros, and bucket <code>b</code> the values from
+ * <code>2<sup>b-1</sup></code> to <code>2<sup>b</sup> - 1</code>.
+ * <p>
+ * The counters are {@link LongAdder}s, so recording from many threads at once
+ * does not contend. A value read while operations are recorded can miss the
+ * latest ones.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see GridMetrics#setSink(GridMetrics.Sink)
+ */
+public class CountingMetricsSink implements GridMetrics.Sink {
+
+    /**
+     * The number of buckets of a histogram.
+     */
+    public static final int BUCKETS = 64;
+
+    private final Counter[] counters;
+
+    /**
+     * Construct a CountingMetricsSink with every counter at zero.
+     */
+    public CountingMetricsSink() {
+        counters = new Counter[Metric.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new Counter();
+        }
+    }
+
+    @Override
+    public void record(Metric metric, long cells, long nanos) {
+        Counter counter = counters[metric.ordinal()];
+        counter.events.increment();
+        counter.cells.add(cells);
+        counter.sizes[bucket(cells)].increment();
+        if (metric.isTimed()) {
+            counter.nanos.add(nanos);
+            counter.latencies[bucket(nanos)].increment();
+        }
+    }
+
+    /**
+     * Returns the histogram bucket of a value.
+     */
+    private static int bucket(long value) {
+        return value <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    /**
+     * Returns the number of recorded operations.
+     *
+     * @param metric the operation
+     * @return the number of times it was recorded
+     */
+    public long count(Metric metric) {
+        return counters[metric.ordinal()].events.sum();
+    }
+
+    /**
+     * Returns the total number of cells of the recorded operations.
+     *
+     * @param metric the operation
+     * @return the sum of their cells
+     */
+    public long cells(Metric metric) {
+        return counters[metric.ordinal()].cells.sum();
+    }
+
+    /**
+     * Returns the total duration of the recorded operations.
+     *
+     * @param metric the operation
+     * @return the sum of their durations in nanoseconds
+     */
+    public long totalNanos(Metric metric) {
+        return counters[metric.ordinal()].nanos.sum();
+    }
+
+    /**
+     * Returns the histogram of the durations of the recorded operations.
+     *
+     * @param metric the operation
+     * @return the number of durations in each bucket
+     */
+    public long[] latencyHistogram(Metric metric) {
+        return sums(counters[metric.ordinal()].latencies);
+    }
+
+    /**
+     * Returns the histogram of the cells of the recorded operations.
+     *
+     * @param metric the operation
+     * @return the number of operations in each bucket
+     */
+    public long[] sizeHistogram(Metric metric) {
+        return sums(counters[metric.ordinal()].sizes);
+    }
+
+    /**
+     * Returns an upper bound of a percentile of the durations of the recorded
+     * operations: the upper bound of the bucket containing it.
+     *
+     * @param metric the operation
+     * @param percentile the percentile, from 0 to 100
+     * @return an upper bound of the percentile in nanoseconds, or 0 if no
+     * operation was recorded
+     */
+    public long latencyPercentile(Metric metric, double percentile) {
+        long[] histogram = latencyHistogram(metric);
+        long total = 0;
+        for (long n : histogram) {
+            total += n;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int b = 0; b < histogram.length; b++) {
+            seen += histogram[b];
+            if (seen >= rank && seen > 0) {
+                return b == 0 ? 0 : b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Reset every counter to zero.
+     */
+    public void reset() {
+        for (Counter counter : counters) {
+            counter.events.reset();
+            counter.cells.reset();
+            counter.nanos.reset();
+            for (int b = 0; b < BUCKETS; b++) {
+                counter.latencies[b].reset();
+                counter.sizes[b].reset();
+            }
+        }
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+
+    /**
+     * Returns the counters of every operation, one per line.
+     *
+     * @return a summary of the counters
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Metric metric : Metric.values()) {
+            sb.append(metric).append(": count=").append(count(metric)).append(" cells=").append(cells(metric));
+            if (metric.isTimed()) {
+                sb.append(" totalNanos=").append(totalNanos(metric))
+                        .append(" p50<=").append(latencyPercentile(metric, 50))
+                        .append(" p99<=").append(latencyPercentile(metric, 99));
+            }
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The counters of an operation.
+     */
+    private static final class Counter {
+
+        private final LongAdder events = new LongAdder();
+        private final LongAdder cells = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder[] latencies = adders();
+        private final LongAdder[] sizes = adders();
+
+        private static LongAdder[] adders() {
+            LongAdder[] adders = new LongAdder[BUCKETS];
+            for (int b = 0; b < BUCKETS; b++) {
+                adders[b] = new LongAdder();
+            }
+            return adders;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package GridLib;
+
+import java.util.function.IntConsumer;
+
+/**
+ * The tiles of a {@link Grid} containing modified cells. The grid is split in
+ * tiles of a fixed size, and a tile is marked dirty when one of its cells is
+ * modified. A consumer, like a renderer or a cache, polls the dirty tiles when
+ * it is ready to process them, and so handles many modifications at once
+ * instead of reacting to each of them.
+ * <p>
+ * The tiles are marked and polled with atomic operations: the grid can be
+ * modified from one thread while the tiles are polled from another one. A
+ * tile modified while it is polled is either reported by this poll or stays
+ * dirty for the next one.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see Grid#trackDirtyTiles(int, int)
+ */
+public final class DirtyTiles {
+
+    private final int width;
+    private final int tileHeight;
+    private final int tileWidth;
+    private final int tileRows;
+    private final int tileColumns;
+    private final FlagSet dirty;
+    private Runnable detach;
+
+    DirtyTiles(int height, int width, int tileHeight, int tileWidth) {
+        if (tileHeight <= 0 || tileWidth <= 0) {
+            throw new IllegalArgumentException("Illegal tile size: " + tileHeight + "x" + tileWidth);
+        }
+        this.width = width;
+        this.tileHeight = tileHeight;
+        this.tileWidth = tileWidth;
+        this.tileRows = (height + tileHeight - 1) / tileHeight;
+        this.tileColumns = (width + tileWidth - 1) / tileWidth;
+        this.dirty = FlagSet.concurrent(tileRows * tileColumns);
+    }
+
+    void onDispose(Runnable detach) {
+        this.detach = detach;
+    }
+
+    /**
+     * Mark the tiles of the modified cells.
+     */
+    void mark(ChangeSet<?> changes) {
+        for (int i = 0; i < changes.size(); i++) {
+            int index = changes.index(i);
+            int row = index / width;
+            int column = index - row * width;
+            dirty.set((row / tileHeight) * tileColumns + column / tileWidth);
+        }
+    }
+
+    /**
+     * Returns the number of rows of a tile.
+     *
+     * @return the number of rows of a tile
+     */
+    public int tileHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * Returns the number of columns of a tile.
+     *
+     * @return the number of columns of a tile
+     */
+    public int tileWidth() {
+        return tileWidth;
+    }
+
+    /**
+     * Returns the number of rows of tiles. The tiles of the last row may have
+     * less rows of cells than the others.
+     *
+     * @return the number of rows of tiles
+     */
+    public int tileRows() {
+        return tileRows;
+    }
+
+    /**
+     * Returns the number of columns of tiles. The tiles of the last column may
+     * have less columns of cells than the others.
+     *
+     * @return the number of columns of tiles
+     */
+    public int tileColumns() {
+        return tileColumns;
+    }
+
+    /**
+     * Returns true if the specified tile contains modified cells.
+     *
+     * @param tileRow the row of the tile
+     * @param tileColumn the column of the tile
+     * @return true if the tile is dirty
+     * @throws IndexOutOfBoundsException if the tile does not exist
+     */
+    public boolean isDirty(int tileRow, int tileColumn) {
+        if (tileRow < 0 || tileColumn < 0 || tileRow >= tileRows || tileColumn >= tileColumns) {
+            throw new IndexOutOfBoundsException("tile: " + tileRow + ", " + tileColumn);
+        }
+        return dirty.get(tileRow * tileColumns + tileColumn);
+    }
+
+    /**
+     * Returns true if no tile is dirty.
+     *
+     * @return true if no tile is dirty
+     */
+    public boolean isEmpty() {
+        return dirty.isEmpty();
+    }
+
+    /**
+     * Mark every tile as dirty.
+     */
+    public void markAll() {
+        for (int i = 0; i < dirty.size(); i++) {
+            dirty.set(i);
+        }
+    }
+
+    /**
+     * Call the action with the index of each dirty tile, in the order of the
+     * tiles, and make it clean. The row of a tile is
+     * <code>tile / tileColumns()</code> and its column is
+     * <code>tile % tileColumns()</code>.
+     *
+     * @param action the action called with the index of each dirty tile
+     * @return the number of polled tiles
+     */
+    public int poll(IntConsumer action) {
+        int n = 0;
+        for (int tile = dirty.nextSetBit(0); tile >= 0; tile = dirty.nextSetBit(tile + 1)) {
+            if (dirty.clear(tile)) {
+                action.accept(tile);
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Stop tracking the modifications of the grid.
+     */
+    public void dispose() {
+        if (detach != null) {
+            detach.run();
+            detach = null;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package GridLib;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of flagged cells of a grid, stored as one bit per cell index in
+ * <code>long</code> words. Testing, setting and clearing a flag are O(1), a
+ * cell cannot be flagged twice, and the flagged cells are always iterated in
+ * the order of the grid.
+ * <p>
+ * The sets created by {@link #create(int)} are not thread-safe. The ones
+ * created by {@link #concurrent(int)} update their words with atomic
+ * compare-and-set operations, so several threads can flag and unflag cells at
+ * the same time without any lock.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see GridCrawler#getFlagSet(int)
+ */
+public abstract class FlagSet {
+
+    private final int size;
+
+    FlagSet(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Illegal size: " + size);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Create an empty FlagSet for the specified number of cells.
+     *
+     * @param size the number of cells of the grid
+     * @return an empty, not thread-safe, FlagSet
+     */
+    public static FlagSet create(int size) {
+        return new Bits(size);
+    }
+
+    /**
+     * Create an empty thread-safe FlagSet for the specified number of cells.
+     *
+     * @param size the number of cells of the grid
+     * @return an empty, thread-safe, FlagSet
+     */
+    public static FlagSet concurrent(int size) {
+        return new AtomicBits(size);
+    }
+
+    static int words(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    abstract long word(int i);
+
+    abstract void setWord(int i, long word);
+
+    abstract void orWord(int i, long word);
+
+    abstract void andWord(int i, long word);
+
+    abstract int wordCount();
+
+    final void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+    }
+
+    /**
+     * Returns the number of cells this FlagSet can flag.
+     *
+     * @return the number of cells of the grid
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the specified cell is flagged.
+     *
+     * @param index the index of the cell
+     * @return true if the cell is flagged
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public abstract boolean get(int index);
+
+    /**
+     * Flag the specified cell.
+     *
+     * @param index the index of the cell
+     * @return true if the cell was not already flagged
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public abstract boolean set(int index);
+
+    /**
+     * Unflag the specified cell.
+     *
+     * @param index the index of the cell
+     * @return true if the cell was flagged
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public abstract boolean clear(int index);
+
+    /**
+     * Unflag every cell.
+     */
+    public void clear() {
+        for (int i = 0; i < wordCount(); i++) {
+            setWord(i, 0);
+        }
+    }
+
+    /**
+     * Returns the number of flagged cells.
+     *
+     * @return the number of flagged cells
+     */
+    public int cardinality() {
+        int n = 0;
+        for (int i = 0; i < wordCount(); i++) {
+            n += Long.bitCount(word(i));
+        }
+        return n;
+    }
+
+    /**
+     * Returns true if no cell is flagged.
+     *
+     * @return true if no cell is flagged
+     */
+    public boolean isEmpty() {
+        for (int i = 0; i < wordCount(); i++) {
+            if (word(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the first flagged cell from the specified one.
+     *
+     * @param from the index of the first cell to check
+     * @return the index of the first flagged cell at or after
+     * <code>from</code>, or -1 if there is none
+     */
+    public int nextSetBit(int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        if (from >= size) {
+            return -1;
+        }
+        int i = from >>> 6;
+        long word = word(i) & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++i == wordCount()) {
+                return -1;
+            }
+            word = word(i);
+        }
+    }
+
+    /**
+     * Call the action with the index of each flagged cell, in the order of the
+     * grid.
+     *
+     * @param action the action called with each index
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < wordCount(); i++) {
+            long word = word(i);
+            while (word != 0) {
+                action.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Flag every cell flagged in the other set too.
+     *
+     * @param other a set of the same size
+     * @throws IllegalArgumentException if the sets have not the same size
+     */
+    public void or(FlagSet other) {
+        checkSize(other);
+        for (int i = 0; i < wordCount(); i++) {
+            long word = other.word(i);
+            if (word != 0) {
+                orWord(i, word);
+            }
+        }
+    }
+
+    /**
+     * Unflag every cell not flagged in the other set.
+     *
+     * @param other a set of the same size
+     * @throws IllegalArgumentException if the sets have not the same size
+     */
+    public void and(FlagSet other) {
+        checkSize(other);
+        for (int i = 0; i < wordCount(); i++) {
+            andWord(i, other.word(i));
+        }
+    }
+
+    /**
+     * Unflag every cell flagged in the other set.
+     *
+     * @param other a set of the same size
+     * @throws IllegalArgumentException if the sets have not the same size
+     */
+    public void andNot(FlagSet other) {
+        checkSize(other);
+        for (int i = 0; i < wordCount(); i++) {
+            long word = other.word(i);
+            if (word != 0) {
+                andWord(i, ~word);
+            }
+        }
+    }
+
+    /**
+     * Returns a not thread-safe copy of this set.
+     *
+     * @return a copy of this set
+     */
+    public FlagSet copy() {
+        Bits copy = new Bits(size);
+        for (int i = 0; i < wordCount(); i++) {
+            copy.words[i] = word(i);
+        }
+        return copy;
+    }
+
+    private void checkSize(FlagSet other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("size " + other.size + " instead of " + size);
+        }
+    }
+
+    private static final class Bits extends FlagSet {
+
+        private final long[] words;
+
+        private Bits(int size) {
+            super(size);
+            words = new long[words(size)];
+        }
+
+        @Override
+        long word(int i) {
+            return words[i];
+        }
+
+        @Override
+        void setWord(int i, long word) {
+            words[i] = word;
+        }
+
+        @Override
+        void orWord(int i, long word) {
+            words[i] |= word;
+        }
+
+        @Override
+        void andWord(int i, long word) {
+            words[i] &= word;
+        }
+
+        @Override
+        int wordCount() {
+            return words.length;
+        }
+
+        @Override
+        public boolean get(int index) {
+            checkIndex(index);
+            return (words[index >>> 6] & (1L << index)) != 0;
+        }
+
+        @Override
+        public boolean set(int index) {
+            checkIndex(index);
+            long word = words[index >>> 6];
+            words[index >>> 6] = word | (1L << index);
+            return (word & (1L << index)) == 0;
+        }
+
+        @Override
+        public boolean clear(int index) {
+            checkIndex(index);
+            long word = words[index >>> 6];
+            words[index >>> 6] = word & ~(1L << index);
+            return (word & (1L << index)) != 0;
+        }
+    }
+
+    private static final class AtomicBits extends FlagSet {
+
+        private final AtomicLongArray words;
+
+        private AtomicBits(int size) {
+            super(size);
+            words = new AtomicLongArray(words(size));
+        }
+
+        @Override
+        long word(int i) {
+            return words.get(i);
+        }
+
+        @Override
+        void setWord(int i, long word) {
+            words.set(i, word);
+        }
+
+        @Override
+        void orWord(int i, long word) {
+            long current;
+            do {
+                current = words.get(i);
+            } while ((current | word) != current && !words.compareAndSet(i, current, current | word));
+        }
+
+        @Override
+        void andWord(int i, long word) {
+            long current;
+            do {
+                current = words.get(i);
+            } while ((current & word) != current && !words.compareAndSet(i, current, current & word));
+        }
+
+        @Override
+        int wordCount() {
+            return words.length();
+        }
+
+        @Override
+        public boolean get(int index) {
+            checkIndex(index);
+            return (words.get(index >>> 6) & (1L << index)) != 0;
+        }
+
+        @Override
+        public boolean set(int index) {
+            checkIndex(index);
+            long bit = 1L << index;
+            long current;
+            do {
+                current = words.get(index >>> 6);
+                if ((current & bit) != 0) {
+                    return false;
+                }
+            } while (!words.compareAndSet(index >>> 6, current, current | bit));
+            return true;
+        }
+
+        @Override
+        public boolean clear(int index) {
+            checkIndex(index);
+            long bit = 1L << index;
+            long current;
+            do {
+                current = words.get(index >>> 6);
+                if ((current & bit) == 0) {
+                    return false;
+                }
+            } while (!words.compareAndSet(index >>> 6, current, current & ~bit));
+            return true;
+        }
+    }
+}
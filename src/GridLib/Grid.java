@@ -2,7 +2,16 @@ package GridLib;
 
 import com.sun.javafx.UnmodifiableArrayList;
 import java.util.ArrayList;
-import java.util.Objects;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
 
 /**
  * Bidimensional non-resizable array with methods to get the row, column,
@@ -15,73 +24,13 @@ import java.util.Objects;
  * @see ArrayList
  * @param <E> the class that this grid can contains
  */
-public class Grid<E> {
+public class Grid<E> extends AbstractGrid<Grid.Cell<E>> {
 
     private final UnmodifiableArrayList<Cell<E>> cells;
-    private final int height;
-    private final int width;
-
-    /**
-     * the emplacement of the cell above the specified one in the returned
-     * ArrayList of the {@link #getAdjacents(GridLib.Grid.Cell, boolean)}
-     * and {@link #getAdjacents(int, int, boolean)} methods
-     */
-    public final static int TOP = 0;
-
-    /**
-     * the emplacement of the cell to the right of the specified one in the
-     * returned ArrayList of the
-     * {@link #getAdjacents(GridLib.Grid.Cell, boolean)} and
-     * {@link #getAdjacents(int, int, boolean)} methods
-     */
-    public final static int RIGHT = 1;
-
-    /**
-     * the emplacement of the cell below the specified one in the returned
-     * ArrayList of the {@link #getAdjacents(GridLib.Grid.Cell, boolean)}
-     * and {@link #getAdjacents(int, int, boolean)} methods
-     */
-    public final static int BOTTOM = 2;
-
-    /**
-     * the emplacement of the cell to the left of the specified one in the
-     * returned ArrayList of the
-     * {@link #getAdjacents(GridLib.Grid.Cell, boolean)} and
-     * {@link #getAdjacents(int, int, boolean)} methods
-     */
-    public final static int LEFT = 3;
-
-    /**
-     * the emplacement of the cell on the top-left corner of the specified one in
-     * the returned ArrayList of the
-     * {@link #getDiagonalsAdjacents(GridLib.Grid.Cell, boolean)} and
-     * {@link #getDiagonalsAdjacents(int, int, boolean)} methods
-     */
-    public final static int TOP_LEFT = 0;
-
-    /**
-     * the emplacement of the cell on the top-left corner of the specified one in
-     * the returned ArrayList of the
-     * {@link #getDiagonalsAdjacents(GridLib.Grid.Cell, boolean)} and
-     * {@link #getDiagonalsAdjacents(int, int, boolean)} methods
-     */
-    public final static int TOP_RIGHT = 1;
-
-    /**
-     * the emplacement of the cell on the top-left corner of the specified one in
-     * the returned ArrayList of the
-     * {@link #getDiagonalsAdjacents(GridLib.Grid.Cell, boolean)} and
-     * {@link #getDiagonalsAdjacents(int, int, boolean)} methods
-     */
-    public final static int BOTTOM_RIGHT = 2;
-
-    /**
-     * the emplacement of the cell on the top-left corner of the specified one in
-     * the returned ArrayList of the
-     * {@link #getDiagonalsAdjacents(GridLib.Grid.Cell, boolean)} and
-     * {@link #getDiagonalsAdjacents(int, int, boolean)} methods
-     */
-    public final static int BOTTOM_LEFT = 3;
+    private final ArrayList<Subscription<E>> gridListeners = new ArrayList<>();
+    private IdentityHashMap<Cell<E>, ArrayList<Cell.CellListener<E>>> cellListeners;
+    private Batch batch;
+    private FlagSet batched;
 
     /**
      * Construct a Grid with the specified height and width and fill the cells
@@ -92,16 +41,38 @@ public class Grid<E> {
      * @param generator a tool that is use to generate the content of each cell
      */
     public Grid(int height, int width, CellValueGenerator<E> generator) {
-
+        super(height, width);
         Cell<E>[] temp = (Cell<E>[]) new Cell[height * width];
         for (int row = 0; row < height; row++) {
             for (int column = 0; column < width; column++) {
-                temp[row * width + column] = new Cell<E>(row, column, generator.generate(row, column));
+                temp[row * width + column] = new Cell<E>(this, row, column, generator.generate(row, column));
             }
         }
         cells = new UnmodifiableArrayList<>(temp, height * width);
-        this.height = height;
-        this.width = width;
+    }
+
+    /**
+     * Construct a Grid with the specified height and width and fill the cells
+     * with the provided generator, splitting the rows in bands generated in
+     * parallel in the provided pool. The generator must follow the contract
+     * of {@link CellValueGenerator} for parallel generation.
+     *
+     * @param height the height of this grid
+     * @param width the width of this grid
+     * @param generator a tool that is use to generate the content of each cell
+     * @param pool the pool in which the cells are generated
+     */
+    public Grid(int height, int width, CellValueGenerator<E> generator, ForkJoinPool pool) {
+        super(height, width);
+        Cell<E>[] temp = (Cell<E>[]) new Cell[height * width];
+        RowBands.run(pool, height, width, (fromRow, toRow) -> {
+            for (int row = fromRow; row < toRow; row++) {
+                for (int column = 0; column < width; column++) {
+                    temp[row * width + column] = new Cell<E>(this, row, column, generator.generate(row, column));
+                }
+            }
+        });
+        cells = new UnmodifiableArrayList<>(temp, height * width);
     }
 
     /**
@@ -113,15 +84,14 @@ public class Grid<E> {
      * @param width the width of this grid
      */
     public Grid(E initial, int height, int width) {
+        super(height, width);
         Cell<E>[] temp = (Cell<E>[]) new Cell[height * width];
         for (int i = 0; i < height; i++) {
             for (int j = 0; j < width; j++) {
-                temp[i * width + j] = new Cell<E>(i, j, initial);
+                temp[i * width + j] = new Cell<E>(this, i, j, initial);
             }
         }
         cells = new UnmodifiableArrayList<>(temp, height * width);
-        this.height = height;
-        this.width = width;
     }
 
     /**
@@ -137,232 +107,386 @@ public class Grid<E> {
 
     /**
      * Reset and generate the value of each cell with the provided generator.
+     * The cells are generated in a {@link #batch(Consumer) batch}, so the
+     * listeners are called once the whole grid is generated.
      *
      * @param generator a tool that is use to generate the content of each cell
      */
     public void regenerateCells(CellValueGenerator<E> generator) {
-        for (Cell<E> cell : cells) {
-            cell.set(generator.generate(cell.row, cell.column));
+        GridMetrics.Sink sink = GridMetrics.sink;
+        long start = sink == null ? 0 : System.nanoTime();
+        batch(grid -> {
+            for (Cell<E> cell : cells) {
+                cell.set(generator.generate(cell.row, cell.column));
+            }
+        });
+        if (sink != null) {
+            sink.record(GridMetrics.Metric.REGENERATION, size(), System.nanoTime() - start);
         }
     }
 
     /**
-     * Put an item in the specified row and column.
+     * Reset and generate the value of each cell with the provided generator,
+     * splitting the rows in bands generated in parallel in the provided pool.
+     * The generator must follow the contract of {@link CellValueGenerator} for
+     * parallel generation. The listeners are not called from the pool: once
+     * every cell is generated, the modified cells are delivered from the
+     * current thread as a single {@link #batch(Consumer) batch}.
      *
-     * @param item the item to put
-     * @param row the row where the item is put
-     * @param column the column where the item is put
-     * @return true if the provided row and column match the height and width of
-     * this Grid, false otherwise
-     */
-    public boolean put(E item, int row, int column) {
-        if (row >= 0 && row < height && column >= 0 && column < width) {
-            cells.get(width * row + column).set(item);
-            return true;
+     * @param generator a tool that is use to generate the content of each cell
+     * @param pool the pool in which the cells are generated
+     */
+    public void regenerateCells(CellValueGenerator<E> generator, ForkJoinPool pool) {
+        GridMetrics.Sink sink = GridMetrics.sink;
+        long start = sink == null ? 0 : System.nanoTime();
+        int width = width();
+        boolean observed = batch != null || !gridListeners.isEmpty()
+                || (cellListeners != null && !cellListeners.isEmpty());
+        List<PendingEvents> pending = Collections.synchronizedList(new ArrayList<>());
+        RowBands.run(pool, height(), width, (fromRow, toRow) -> {
+            PendingEvents events = null;
+            for (int i = fromRow * width; i < toRow * width; i++) {
+                Cell<E> cell = cells.get(i);
+                E oldValue = cell.value;
+                cell.value = generator.generate(cell.row, cell.column);
+                if (oldValue != cell.value && observed) {
+                    if (events == null) {
+                        events = new PendingEvents(fromRow);
+                        pending.add(events);
+                    }
+                    events.changes.add(i, oldValue);
+                }
+            }
+        });
+        if (!pending.isEmpty()) {
+            pending.sort((a, b) -> Integer.compare(a.fromRow, b.fromRow));
+            batch(grid -> {
+                for (PendingEvents events : pending) {
+                    Batch changes = events.changes;
+                    for (int i = 0; i < changes.size; i++) {
+                        if (batched.set(changes.indexes[i])) {
+                            batch.add(changes.indexes[i], changes.oldValues[i]);
+                        }
+                    }
+                }
+            });
+        }
+        if (sink != null) {
+            sink.record(GridMetrics.Metric.REGENERATION, size(), System.nanoTime() - start);
         }
-        return false;
     }
 
     /**
-     * Replace the item in the specified row and column by the provided one. Does
-     * nothing if there is no precedent item
+     * Run the action as a batch of modifications of this Grid. During the
+     * batch, modifying a cell does not call any listener. When the action
+     * returns (or throws an exception), each modified cell calls its
+     * {@link Cell.CellListener}s once, with its value before the batch and
+     * its current value, then the {@link GridListener}s of this Grid receive
+     * all the modified cells at once in a single {@link ChangeSet}.
+     * <p>
+     * A batch started during another one is part of it. Like the rest of
+     * this class, batches are not thread-safe: all the modifications must be
+     * made from the thread running the action.
      *
-     * @param item the item to put
-     * @param row the row where the item is replaced
-     * @param column the column where the item is replaced
-     * @return true if there was a precedent item in the specified emplacement,
-     * false otherwise
+     * @param action the action modifying this Grid
      */
-    public boolean replace(E item, int row, int column) {
-        int index = width * row + column;
-        if (index < cells.size() && !cells.get(index).isEmpty()) {
-            return put(item, row, column);
+    public void batch(Consumer<? super Grid<E>> action) {
+        if (batch != null) {
+            action.accept(this);
+            return;
+        }
+        if (batched == null) {
+            batched = FlagSet.create(size());
+        }
+        batch = new Batch();
+        try {
+            action.accept(this);
+        } finally {
+            Batch done = batch;
+            batch = null;
+            commit(done);
         }
-        return false;
     }
 
     /**
-     * Remove the item in the specified row and column.
+     * Registers a listener to this Grid. The listener is called with the
+     * modified cells after each modification of a cell, or once at the end of
+     * a {@link #batch(Consumer) batch}.
      *
-     * @param row the row where the item is deleted
-     * @param column the column where the item is deleted
-     * @return true if there was an item to delete in the specified emplacement,
-     * false otherwise
+     * @param listener the listener to register
      */
-    public boolean remove(int row, int column) {
-        Cell c = cells.get(width * row + column);
-        if (c.isEmpty()) {
-            c.clear();
-            return true;
-        }
-        return false;
+    public void addGridListener(GridListener<E> listener) {
+        gridListeners.add(new Subscription<>(listener, 0, 0, height() - 1, width() - 1, null));
     }
 
     /**
-     * Get the cell in the specified row and column.
+     * Registers a listener to a region of this Grid. The listener is only
+     * called when cells of the region are modified, and only receives these
+     * cells.
      *
-     * @param row the specified row
-     * @param column the specified column
-     * @return the cell specified cell
-     * @throws IndexOutOfBoundsException if the row and/or column are out of
-     * range
-     */
-    public Cell<E> get(int row, int column) {
-        if (row < 0 || column < 0 || row >= width() || column >= height()) {
-            throw new IndexOutOfBoundsException();
+     * @param listener the listener to register
+     * @param row the top row of the region
+     * @param column the left column of the region
+     * @param height the number of rows of the region
+     * @param width the number of columns of the region
+     * @throws IndexOutOfBoundsException if the region is not inside this Grid
+     */
+    public void addGridListener(GridListener<E> listener, int row, int column, int height, int width) {
+        if (height < 0 || width < 0) {
+            throw new IndexOutOfBoundsException("height: " + height + ", width: " + width);
+        }
+        if (height > 0 && width > 0) {
+            checkBounds(row, column);
+            checkBounds(row + height - 1, column + width - 1);
         }
-        return cells.get(width * row + column);
+        gridListeners.add(new Subscription<>(listener, row, column, row + height - 1, column + width - 1, null));
     }
 
     /**
-     * get the adjacents cells of the specified one.
+     * Registers a listener to the cells of this Grid accepted by a filter.
+     * The listener is only called when such cells are modified, and only
+     * receives these cells.
      *
-     * @param row the row of the specified cell
-     * @param column the column of the specified cell
-     * @param deleteNulls if set to true, delete the non-existant cells (when
-     * the specified cell is in a border or a corner)
+     * @param listener the listener to register
+     * @param filter a predicate called with the index of a modified cell,
+     * true if the listener must receive it
+     */
+    public void addGridListener(GridListener<E> listener, IntPredicate filter) {
+        gridListeners.add(new Subscription<>(listener, 0, 0, height() - 1, width() - 1, filter));
+    }
+
+    /**
+     * Unregisters a previously registered listener from this Grid, with all
+     * the regions it was registered to.
      *
-     * @return a list containing the adjacents cells in the order defined by the
-     * {@link #TOP}, {@link #RIGHT}, {@link #BOTTOM} and {@link #LEFT}
-     * constants. Beware that these cosntants become obsoletes if
-     * <code>deleteNulls</code> is true
-     * @throws IndexOutOfBoundsException if the row and/or column are out of
-     * range
+     * @param listener the listener to unregister
+     * @return true if the listener was registered
      */
-    public ArrayList<Cell<E>> getAdjacents(int row, int column, boolean deleteNulls) {
-        if (row < 0 || column < 0 || row >= width() || column >= height()) {
-            throw new IndexOutOfBoundsException();
-        }
-        ArrayList<Cell<E>> res = new ArrayList<>();
-        res.add((row > 0) ? get(row - 1, column) : null); //add up cell
-        res.add((column < width - 1) ? get(row, column + 1) : null); //add right cell
-        res.add((row < height - 1) ? get(row + 1, column) : null); //add down cell
-        res.add((column > 0) ? get(row, column - 1) : null); //add left cell
+    public boolean removeGridListener(GridListener<E> listener) {
+        return gridListeners.removeIf(subscription -> subscription.listener == listener);
+    }
 
-        if (deleteNulls) {
-            res.removeIf(Objects::isNull);
-        }
-        return res;
+    /**
+     * Start tracking the modified cells of this Grid by tiles. The returned
+     * {@link DirtyTiles} is marked each time a cell of a tile is modified,
+     * until it is {@link DirtyTiles#dispose() disposed}.
+     *
+     * @param tileHeight the number of rows of a tile
+     * @param tileWidth the number of columns of a tile
+     * @return a new set of tiles, all clean
+     * @throws IllegalArgumentException if a size of a tile is not positive
+     */
+    public DirtyTiles trackDirtyTiles(int tileHeight, int tileWidth) {
+        DirtyTiles tiles = new DirtyTiles(height(), width(), tileHeight, tileWidth);
+        GridListener<E> listener = tiles::mark;
+        addGridListener(listener);
+        tiles.onDispose(() -> removeGridListener(listener));
+        return tiles;
     }
 
     /**
-     * get the diagonal-adjacents cells of the specified one.
+     * Start indexing the sum and the number of the occupied cells of this
+     * Grid, to answer the aggregates of rectangles without scanning their
+     * cells. The returned {@link AggregateIndex} is updated each time cells
+     * are modified, until it is {@link AggregateIndex#dispose() disposed}.
      *
-     * @param row the row of the specified cell
-     * @param column the column of the specified cell
-     * @param deleteNulls if set to true, delete the non-existant cells (when
-     * the specified cell is in a border or a corner)
+     * @param function the function converting the value of an occupied cell
+     * to a number
+     * @return a new index of the current cells
+     */
+    public AggregateIndex<E> indexAggregates(ToDoubleFunction<? super E> function) {
+        AggregateIndex<E> index = new AggregateIndex<>(this, function);
+        GridListener<E> listener = index::changed;
+        addGridListener(listener);
+        index.onDispose(() -> removeGridListener(listener));
+        return index;
+    }
+
+    /**
+     * Start indexing the cells of this Grid by the key of their value, to find
+     * the cells holding a key without scanning the grid. The returned
+     * {@link ValueIndex} is updated each time cells are modified, until it is
+     * {@link ValueIndex#dispose() disposed}.
      *
-     * @return a list containing the diagonal-adjacents cells in the order
-     * defined by the
-     * {@link #TOP_LEFT}, {@link #TOP_RIGHT}, {@link #BOTTOM_RIGHT} and
-     * {@link #BOTTOM_LEFT} constants. Beware that these cosntants become
-     * obsoletes if <code>deleteNulls</code> is true
-     * @throws IndexOutOfBoundsException if the row and/or column are out of
-     * range
+     * @param <K> the class of the keys
+     * @param keyExtractor the function extracting the key of a value, which
+     * can be the identity function to index the values themselves
+     * @return a new index of the current cells
+     */
+    public <K> ValueIndex<E, K> indexValues(Function<? super E, ? extends K> keyExtractor) {
+        ValueIndex<E, K> index = new ValueIndex<>(this, keyExtractor);
+        GridListener<E> listener = index::changed;
+        addGridListener(listener);
+        index.onDispose(() -> removeGridListener(listener));
+        return index;
+    }
+
+    /**
+     * Called by a cell each time its value is modified.
      */
-    public ArrayList<Cell<E>> getDiagonalsAdjacents(int row, int column, boolean deleteNulls) {
-        if (row < 0 || column < 0 || row >= width() || column >= height()) {
-            throw new IndexOutOfBoundsException();
+    private void changed(Cell<E> cell, E oldValue) {
+        int index = index(cell.row, cell.column);
+        if (batch != null) {
+            if (batched.set(index)) {
+                batch.add(index, oldValue);
+            }
+            return;
+        }
+        if ((cellListeners == null || cellListeners.isEmpty()) && gridListeners.isEmpty()) {
+            return;
+        }
+        GridMetrics.Sink sink = GridMetrics.sink;
+        long start = sink == null ? 0 : System.nanoTime();
+        fireCellChanged(cell, oldValue);
+        if (!gridListeners.isEmpty() && oldValue != cell.value) {
+            fire(new ChangeSet<>(this, new int[]{index}, new Object[]{oldValue},
+                    new Object[]{cell.value}, 1));
+        }
+        if (sink != null) {
+            sink.record(GridMetrics.Metric.LISTENER_DISPATCH, 1, System.nanoTime() - start);
         }
-        ArrayList<Cell<E>> res = new ArrayList<>();
-        res.add((row > 0 && column > 0) ? get(row - 1, column - 1) : null); //add up-left cell
-        res.add((row > 0 && column < width - 1) ? get(row - 1, column + 1) : null); //add up-right cell
-        res.add((row < height - 1 && column < width - 1) ? get(row + 1, column + 1) : null); //add down-right cell
-        res.add((row < height - 1 && column > 0) ? get(row + 1, column - 1) : null); //add down-left cell
+    }
 
-        if (deleteNulls) {
-            res.removeIf(Objects::isNull);
+    /**
+     * Deliver the modifications recorded during a batch.
+     */
+    @SuppressWarnings("unchecked")
+    private void commit(Batch done) {
+        int n = 0;
+        Object[] newValues = new Object[done.size];
+        for (int i = 0; i < done.size; i++) {
+            int index = done.indexes[i];
+            batched.clear(index);
+            E value = cells.get(index).value;
+            if (value != done.oldValues[i]) {
+                done.indexes[n] = index;
+                done.oldValues[n] = done.oldValues[i];
+                newValues[n] = value;
+                n++;
+            }
+        }
+        if (n == 0 || ((cellListeners == null || cellListeners.isEmpty()) && gridListeners.isEmpty())) {
+            return;
+        }
+        GridMetrics.Sink sink = GridMetrics.sink;
+        long start = sink == null ? 0 : System.nanoTime();
+        if (cellListeners != null && !cellListeners.isEmpty()) {
+            for (int i = 0; i < n; i++) {
+                fireCellChanged(cells.get(done.indexes[i]), (E) done.oldValues[i]);
+            }
+        }
+        if (!gridListeners.isEmpty()) {
+            fire(new ChangeSet<>(this, done.indexes, done.oldValues, newValues, n));
+        }
+        if (sink != null) {
+            sink.record(GridMetrics.Metric.LISTENER_DISPATCH, n, System.nanoTime() - start);
+        }
+    }
+
+    private void fire(ChangeSet<E> changes) {
+        for (Subscription<E> subscription : new ArrayList<>(gridListeners)) {
+            ChangeSet<E> received = subscription.select(changes);
+            if (received != null) {
+                subscription.listener.changed(received);
+            }
+        }
+    }
+
+    private void fireCellChanged(Cell<E> cell, E oldValue) {
+        if (cellListeners == null) {
+            return;
+        }
+        ArrayList<Cell.CellListener<E>> listeners = cellListeners.get(cell);
+        if (listeners != null) {
+            for (Cell.CellListener<E> listener : new ArrayList<>(listeners)) {
+                listener.changed(cell, oldValue, cell.value);
+            }
         }
-        return res;
+    }
+
+    private void addCellListener(Cell<E> cell, Cell.CellListener<E> listener) {
+        if (cellListeners == null) {
+            cellListeners = new IdentityHashMap<>();
+        }
+        cellListeners.computeIfAbsent(cell, c -> new ArrayList<>(1)).add(listener);
+    }
+
+    private boolean removeCellListener(Cell<E> cell, Cell.CellListener<E> listener) {
+        ArrayList<Cell.CellListener<E>> listeners = cellListeners == null ? null : cellListeners.get(cell);
+        if (listeners == null || !listeners.remove(listener)) {
+            return false;
+        }
+        if (listeners.isEmpty()) {
+            cellListeners.remove(cell);
+        }
+        return true;
     }
 
     /**
-     * Get the specified row of cells.
+     * Put an item in the specified row and column.
      *
-     * @param row the specified row
-     * @return a list containing the cells of the specified row from right to left
-     * @throws IndexOutOfBoundsException if the row is out of range
+     * @param item the item to put
+     * @param row the row where the item is put
+     * @param column the column where the item is put
+     * @return true if the provided row and column match the height and width of
+     * this Grid, false otherwise
      */
-    public ArrayList<Cell<E>> getRow(int row) {
-        if (row < 0 || row >= width()) {
-            throw new IndexOutOfBoundsException();
-        }
-        ArrayList<Cell<E>> res = new ArrayList<>();
-        for (int i = 0; i < width; i++) {
-            res.add(get(row, i));
+    public boolean put(E item, int row, int column) {
+        if (contains(row, column)) {
+            cells.get(index(row, column)).set(item);
+            return true;
         }
-        return res;
+        return false;
     }
 
     /**
-     * Get the specified column of cells.
+     * Replace the item in the specified row and column by the provided one. Does
+     * nothing if there is no precedent item
      *
-     * @param column the specified column
-     * @return a list containing the cells of the specified column from top to
-     * bottom
-     * @throws IndexOutOfBoundsException if the column is out of range
+     * @param item the item to put
+     * @param row the row where the item is replaced
+     * @param column the column where the item is replaced
+     * @return true if there was a precedent item in the specified emplacement,
+     * false otherwise
      */
-    public ArrayList<Cell<E>> getColumn(int column) {
-        if (column < 0 || column >= height()) {
-            throw new IndexOutOfBoundsException();
-        }
-        ArrayList<Cell<E>> res = new ArrayList<>();
-        for (int i = 0; i < height; i++) {
-            res.add(get(i, column));
+    public boolean replace(E item, int row, int column) {
+        if (contains(row, column) && !cells.get(index(row, column)).isEmpty()) {
+            return put(item, row, column);
         }
-        return res;
+        return false;
     }
 
     /**
-     * Get the specified descending diagonal of cells
+     * Remove the item in the specified row and column.
      *
-     * @param row the specified row
-     * @param column the specified column
-     * @return a list containing the cells of the specified descending diagonal
-     * from the top-left cell to the bottom-right one
-     * @throws IndexOutOfBoundsException if the row and/or column are out of
-     * range
+     * @param row the row where the item is deleted
+     * @param column the column where the item is deleted
+     * @return true if there was an item to delete in the specified emplacement,
+     * false otherwise
      */
-    public ArrayList<Cell<E>> getDiagonalDesc(int row, int column) {
-        if (row < 0 || column < 0 || row >= width() || column >= height()) {
-            throw new IndexOutOfBoundsException();
+    public boolean remove(int row, int column) {
+        if (!contains(row, column)) {
+            return false;
+        }
+        Cell<E> c = cells.get(index(row, column));
+        if (!c.isEmpty()) {
+            c.clear();
+            return true;
         }
-        ArrayList<Cell<E>> res = new ArrayList<>();
-        int rowStart = (column > row) ? 0 : row - column;
-        int colStart = (row > column) ? 0 : column - row;
-        int i = width * rowStart + colStart;
-        do {
-            res.add(cells.get(i));
-            i += width + 1;
-        } while (i < cells.size() && i % width != 0);
-        return res;
+        return false;
     }
 
     /**
-     * Get the specified ascending diagonal of cells
+     * Get the cell in the specified row and column.
      *
      * @param row the specified row
      * @param column the specified column
-     * @return a list containing the cells of the specified ascending diagonal
-     * from the bottom-left cell to the top-right one
+     * @return the cell specified cell
      * @throws IndexOutOfBoundsException if the row and/or column are out of
      * range
      */
-    public ArrayList<Cell<E>> getDiagonalAsc(int row, int column) {
-        if (row < 0 || column < 0 || row >= width() || column >= height()) {
-            throw new IndexOutOfBoundsException();
-        }
-        ArrayList<Cell<E>> res = new ArrayList<>();
-        int r = height - row - 1;
-        int rowStart = (column > r) ? height - 1 : height - 1 - (r - column);
-        int colStart = (r > column) ? 0 : column - r;
-        int i = width * rowStart + colStart;
-        do {
-            res.add(cells.get(i));
-            i -= width - 1;
-        } while (i >= 0 && i % width != 0);
-        return res;
+    public Cell<E> get(int row, int column) {
+        return getCell(row, column);
     }
 
     /**
@@ -451,30 +575,29 @@ public class Grid<E> {
     }
 
     /**
-     * Return the number of rows in this Grid.
+     * Return the cells of this Grid.
      *
-     * @return the number of rows in this Grid
+     * @return the cells of this Grid
      */
-    public int height() {
-        return height;
+    public UnmodifiableArrayList<Cell<E>> getCells() {
+        return cells;
     }
 
     /**
-     * Return the number of columns in this Grid.
+     * Returns a sequential stream of the values of this Grid, row after row.
+     * Use {@link Stream#parallel()} to process them by bands of whole rows in
+     * parallel.
      *
-     * @return the number of columns in this Grid
+     * @return a stream of the values of this Grid
+     * @see #stream()
      */
-    public int width() {
-        return width;
+    public Stream<E> valueStream() {
+        return stream().map(Cell::get);
     }
 
-    /**
-     * Return the cells of this Grid.
-     *
-     * @return the cells of this Grid
-     */
-    public UnmodifiableArrayList<Cell<E>> getCells() {
-        return cells;
+    @Override
+    protected Cell<E> cellAt(int index) {
+        return cells.get(index);
     }
 
     /**
@@ -486,15 +609,15 @@ public class Grid<E> {
     public static class Cell<E> {
 
         private E value;
+        private final Grid<E> grid;
         private final int row;
         private final int column;
-        private final ArrayList<CellListener> listeners;
 
-        private Cell(int row, int column, E value) {
+        private Cell(Grid<E> grid, int row, int column, E value) {
+            this.grid = grid;
             this.row = row;
             this.column = column;
             this.value = value;
-            this.listeners = new ArrayList<>();
         }
 
         /**
@@ -507,10 +630,12 @@ public class Grid<E> {
         }
 
         /**
-         * A convenience method that make the value of this Cell null.
+         * A convenience method that make the value of this Cell null. Like
+         * {@link #set(Object)}, it calls the listeners of this Cell and of its
+         * grid.
          */
         public void clear() {
-            value = null;
+            set(null);
         }
 
         /**
@@ -548,19 +673,23 @@ public class Grid<E> {
         public void set(E value) {
             E oldValue = this.value;
             this.value = value;
-            for (CellListener listener : listeners) {
-                listener.changed(this, oldValue, value);
+            GridMetrics.Sink sink = GridMetrics.sink;
+            if (sink != null) {
+                sink.record(GridMetrics.Metric.CELL_SET, 1, 0);
             }
+            grid.changed(this, oldValue);
         }
 
         /**
          * Registers an event listener to this Cell. The listener is called when
-         * the value of this cell is modified.
+         * the value of this cell is modified. The listeners are stored by the
+         * grid, so a Cell without listener costs nothing more than its value
+         * and location.
          * 
          * @param listener the listener to register
          */
-        public void addCellListener(CellListener listener) {
-            listeners.add(listener);
+        public void addCellListener(CellListener<E> listener) {
+            grid.addCellListener(this, listener);
         }
 
         /**
@@ -569,8 +698,8 @@ public class Grid<E> {
          * @param listener the listener to unregister
          * @return true if this Grid contained the specified element
          */
-        public boolean removeCellListener(CellListener listener) {
-            return listeners.remove(listener);
+        public boolean removeCellListener(CellListener<E> listener) {
+            return grid.removeCellListener(this, listener);
         }
 
         /**
@@ -584,14 +713,140 @@ public class Grid<E> {
         }
     }
 
+    /**
+     * A listener that is called with the cells of a registered Grid modified
+     * together.
+     *
+     * @param <E> the class that this GridListener can handle
+     * @see Grid#batch(Consumer)
+     */
+    public interface GridListener<E> {
+
+        /**
+         * Called after cells of the grid are modified.
+         *
+         * @param changes the modified cells
+         */
+        void changed(ChangeSet<E> changes);
+    }
+
+    /**
+     * A registered GridListener, with the region of the grid it listens to.
+     */
+    private static final class Subscription<E> {
+
+        private final GridListener<E> listener;
+        private final int minRow;
+        private final int minColumn;
+        private final int maxRow;
+        private final int maxColumn;
+        private final IntPredicate filter;
+
+        private Subscription(GridListener<E> listener, int minRow, int minColumn, int maxRow, int maxColumn,
+                IntPredicate filter) {
+            this.listener = listener;
+            this.minRow = minRow;
+            this.minColumn = minColumn;
+            this.maxRow = maxRow;
+            this.maxColumn = maxColumn;
+            this.filter = filter;
+        }
+
+        /**
+         * Returns the modifications this subscription receives, or null if
+         * there is none.
+         */
+        private ChangeSet<E> select(ChangeSet<E> changes) {
+            if (changes.maxRow() < minRow || changes.minRow() > maxRow
+                    || changes.maxColumn() < minColumn || changes.minColumn() > maxColumn) {
+                return null;
+            }
+            boolean inside = changes.minRow() >= minRow && changes.maxRow() <= maxRow
+                    && changes.minColumn() >= minColumn && changes.maxColumn() <= maxColumn;
+            if (inside && filter == null) {
+                return changes;
+            }
+            int width = changes.getGrid().width();
+            ChangeSet<E> selected = changes.filter(index -> {
+                int row = index / width;
+                int column = index - row * width;
+                return row >= minRow && row <= maxRow && column >= minColumn && column <= maxColumn
+                        && (filter == null || filter.test(index));
+            });
+            return selected.isEmpty() ? null : selected;
+        }
+    }
+
+    /**
+     * The cells modified during a batch, each with its value before the
+     * batch.
+     */
+    private static final class Batch {
+
+        private int[] indexes = new int[16];
+        private Object[] oldValues = new Object[16];
+        private int size;
+
+        private void add(int index, Object oldValue) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+                oldValues = Arrays.copyOf(oldValues, size * 2);
+            }
+            indexes[size] = index;
+            oldValues[size++] = oldValue;
+        }
+    }
+
+    /**
+     * The modifications made by a parallel generation in a band of rows.
+     */
+    private static final class PendingEvents {
+
+        private final int fromRow;
+        private final Batch changes = new Batch();
+
+        private PendingEvents(int fromRow) {
+            this.fromRow = fromRow;
+        }
+    }
+
     /**
      * A generator that generate a Cell value by its row and column number.
-     * 
+     * <p>
+     * When it is used for a parallel generation (see
+     * {@link Grid#Grid(int, int, CellValueGenerator, ForkJoinPool)} and
+     * {@link Grid#regenerateCells(CellValueGenerator, ForkJoinPool)}), the
+     * generator is called from several threads at once and in no particular
+     * order. It must then be thread-safe, and the generated value should only
+     * depend on the row and the column so the grid is the same whatever the
+     * number of threads. Random generators should not share a
+     * {@link java.util.Random} but seed one per cell with
+     * {@link #seed(long, int, int)}.
+     *
      * @see GridLib.Grid.Cell
      * @param <E> the class of object this CellValueGenerator can generate
      */
     public interface CellValueGenerator<E> {
 
+        /**
+         * Derive the seed of a cell from a seed shared by the whole grid. The
+         * result is well mixed, so neighbour cells get unrelated seeds, and
+         * it only depends on its arguments, so a generator drawing from
+         * <code>new SplittableRandom(seed(seed, row, column))</code> is
+         * deterministic even when the cells are generated in parallel.
+         *
+         * @param seed the seed shared by the whole grid
+         * @param row the row of the Cell
+         * @param column the column of the Cell
+         * @return the seed of the specified Cell
+         */
+        static long seed(long seed, int row, int column) {
+            long z = seed + (((long) row << 32) | (column & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
         /**
          * Generate a value for a Cell.
          *
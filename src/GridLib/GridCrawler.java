@@ -2,12 +2,29 @@ package GridLib;
 
 import GridLib.Grid.Cell;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * A tool used to crawl in a {@link Grid} a search specific cells in it.
+ * <p>
+ * A GridCrawler constructed with a {@link ForkJoinPool} crawls in parallel:
+ * the crawl and every subcrawler started with
+ * {@link Subcrawler#fork(GridLib.Grid.Cell)} run as tasks of the pool, the
+ * flags are stored in thread-safe {@link FlagSet}s, and
+ * {@link #awaitCompletion()} waits for all of them to be done. The crawl
+ * methods are then called from several threads at once, so they must only
+ * share state through the flags, the global state or thread-safe objects.
  *
  * @author Jordan Vésy
  * @since 1.0
@@ -18,15 +35,29 @@ import java.util.logging.Logger;
 public abstract class GridCrawler<E> {
 
     private final Grid<E> grid;
-    private final HashMap<Integer, ArrayList<Cell<E>>> cells;
-    private int idMaker;
+    /**
+     * The flag sets of the flags that are small enough, indexed by
+     * {@link #slotOf(int)}: the table only grows, under the lock of the
+     * crawler, so it can be read without locking.
+     */
+    private volatile AtomicReferenceArray<FlagSet> flags;
+    /**
+     * The flag sets of the other flags, created with the first of them.
+     */
+    private volatile ConcurrentHashMap<Integer, FlagSet> largeFlags;
+    private final AtomicInteger idMaker;
+    private final ForkJoinPool pool;
+    private final AtomicInteger pending;
+    private final AtomicReference<Throwable> failure;
     private Thread t;
+    private volatile GridMetrics.Sink crawlSink;
+    private volatile long crawlStart;
 
     /**
      * A global state that one can use however they want to modify the behavior
      * of this crawler and its subcrawlers
      */
-    private int globalState;
+    private volatile int globalState;
 
     /**
      * Construct a GridCrawler that can crawl in the specified Grid.
@@ -34,10 +65,25 @@ public abstract class GridCrawler<E> {
      * @param grid the grid that this GridCrawler can crawl in
      */
     public GridCrawler(Grid<E> grid) {
+        this(grid, null);
+    }
+
+    /**
+     * Construct a GridCrawler that crawls in the specified Grid in parallel,
+     * in the provided pool.
+     *
+     * @param grid the grid that this GridCrawler can crawl in
+     * @param pool the pool running the crawl and the forked subcrawlers, or
+     * null to crawl in a single thread
+     */
+    public GridCrawler(Grid<E> grid, ForkJoinPool pool) {
         this.grid = grid;
-        cells = new HashMap<>();
+        this.pool = pool;
+        flags = new AtomicReferenceArray<>(16);
         globalState = 0;
-        idMaker = -10;
+        idMaker = new AtomicInteger(-10);
+        pending = new AtomicInteger();
+        failure = new AtomicReference<>();
         t = new Thread();
     }
 
@@ -59,16 +105,14 @@ public abstract class GridCrawler<E> {
     }
 
     /**
-     * Flag the specified cell with the specified flag.
+     * Flag the specified cell with the specified flag. Flagging a cell that is
+     * already flagged with this flag does nothing.
      *
      * @param flag the flag that you want to use
      * @param c the cell to flag
      */
     public void flag(int flag, Cell<E> c) {
-        if (!cells.containsKey(flag)) {
-            cells.put(flag, new ArrayList<>());
-        }
-        cells.get(flag).add(c);
+        getFlagSet(flag).set(grid.index(c.getRow(), c.getColumn()));
     }
 
     /**
@@ -78,20 +122,197 @@ public abstract class GridCrawler<E> {
      * @param c a list of the cells to flag
      */
     public void flag(int flag, ArrayList<Cell<E>> c) {
-        if (!cells.containsKey(flag)) {
-            cells.put(flag, new ArrayList<>());
+        FlagSet set = getFlagSet(flag);
+        for (Cell<E> cell : c) {
+            set.set(grid.index(cell.getRow(), cell.getColumn()));
         }
-        cells.get(flag).addAll(c);
     }
 
     /**
-     * Get a list containing the cells flagged with the specified flag.
+     * Remove the specified flag from the specified cell.
+     *
+     * @param flag the flag to remove
+     * @param c the cell to unflag
+     * @return true if the cell was flagged with this flag
+     */
+    public boolean unflag(int flag, Cell<E> c) {
+        FlagSet set = flagSet(flag);
+        return set != null && set.clear(grid.index(c.getRow(), c.getColumn()));
+    }
+
+    /**
+     * Returns true if the specified cell is flagged with the specified flag.
+     *
+     * @param flag the flag to test
+     * @param c the cell to test
+     * @return true if the cell is flagged with this flag
+     */
+    public boolean isFlagged(int flag, Cell<E> c) {
+        FlagSet set = flagSet(flag);
+        return set != null && set.get(grid.index(c.getRow(), c.getColumn()));
+    }
+
+    /**
+     * Get a list containing the cells flagged with the specified flag, in the
+     * order of the grid.
      *
      * @param flag the flag you want to get the cells flagged with
      * @return a list containing the cells flagged with the specified flag
      */
     public ArrayList<Cell<E>> flagged(int flag) {
-        return cells.containsKey(flag) ? cells.get(flag) : new ArrayList<>();
+        ArrayList<Cell<E>> res = new ArrayList<>();
+        FlagSet set = flagSet(flag);
+        if (set != null) {
+            set.forEach(i -> res.add(grid.getCells().get(i)));
+        }
+        return res;
+    }
+
+    /**
+     * Get the set of the indexes of the cells flagged with the specified flag.
+     * The set is live: it is modified when cells are flagged with this flag,
+     * and flagging cells in it flags them in this crawler. Use
+     * {@link FlagSet#copy()} before combining it with another flag.
+     *
+     * @param flag the flag you want to get the cells flagged with
+     * @return the set of the cells flagged with the specified flag
+     */
+    public FlagSet getFlagSet(int flag) {
+        FlagSet set = flagSet(flag);
+        return set != null ? set : createFlagSet(flag);
+    }
+
+    /**
+     * The largest slot of the table of the flags: the flags whose slot is
+     * larger are stored in a map.
+     */
+    private static final int MAX_SLOT = 1 << 16;
+
+    /**
+     * Returns the slot of a flag in the table of the flags: the positive and
+     * the negative flags, like the ids of the subcrawlers, are interleaved so
+     * that the flags near 0 have the smallest slots.
+     */
+    private static int slotOf(int flag) {
+        return flag >= 0 ? flag << 1 : ~flag << 1 | 1;
+    }
+
+    /**
+     * Returns the set of a flag, or null if no cell was ever flagged with it.
+     */
+    private FlagSet flagSet(int flag) {
+        int slot = slotOf(flag);
+        if (slot >= 0 && slot < MAX_SLOT) {
+            AtomicReferenceArray<FlagSet> table = flags;
+            return slot < table.length() ? table.get(slot) : null;
+        }
+        ConcurrentHashMap<Integer, FlagSet> map = largeFlags;
+        return map == null ? null : map.get(flag);
+    }
+
+    private synchronized FlagSet createFlagSet(int flag) {
+        FlagSet set = flagSet(flag);
+        if (set != null) {
+            return set;
+        }
+        set = pool == null ? FlagSet.create(grid.size()) : FlagSet.concurrent(grid.size());
+        int slot = slotOf(flag);
+        if (slot >= 0 && slot < MAX_SLOT) {
+            AtomicReferenceArray<FlagSet> table = flags;
+            if (slot >= table.length()) {
+                AtomicReferenceArray<FlagSet> grown = new AtomicReferenceArray<>(
+                        Math.min(MAX_SLOT, Integer.highestOneBit(slot) << 1));
+                for (int i = 0; i < table.length(); i++) {
+                    grown.set(i, table.get(i));
+                }
+                flags = table = grown;
+            }
+            table.set(slot, set);
+        } else {
+            if (largeFlags == null) {
+                largeFlags = new ConcurrentHashMap<>();
+            }
+            largeFlags.put(flag, set);
+        }
+        return set;
+    }
+
+    /**
+     * Flag with the specified flag the cells connected to the starting point
+     * whose value matches the predicate, in breadth-first order. The cells
+     * already visited are kept in a {@link BitSet} and the cells to visit in
+     * an <code>int</code> queue, so no cell list is built during the fill.
+     *
+     * @param flag the flag that you want to use
+     * @param startingPoint the point where the fill starts
+     * @param predicate the predicate that the value of a cell must match to be
+     * flagged
+     * @param neighbourhood the neighbourhood defining which cells are
+     * connected, usually {@link Neighbourhood#VON_NEUMANN} or
+     * {@link Neighbourhood#MOORE}
+     * @return the number of flagged cells, 0 if the value of the starting
+     * point does not match the predicate
+     * @see ConnectedComponents
+     */
+    public int floodFill(int flag, Cell<E> startingPoint, Predicate<? super E> predicate, Neighbourhood neighbourhood) {
+        if (!predicate.test(startingPoint.get())) {
+            return 0;
+        }
+        GridMetrics.Sink sink = GridMetrics.sink;
+        long startTime = sink == null ? 0 : System.nanoTime();
+        FlagSet flagged = getFlagSet(flag);
+        BitSet visited = new BitSet(grid.size());
+        int[] neighbours = new int[neighbourhood.size()];
+        int[] queue = new int[64];
+        int head = 0;
+        int tail = 0;
+        int count = 0;
+        int start = grid.index(startingPoint.getRow(), startingPoint.getColumn());
+        visited.set(start);
+        queue[tail++] = start;
+        while (head < tail) {
+            int index = queue[head++];
+            flagged.set(index);
+            count++;
+            int n = grid.neighbours(index, neighbourhood, neighbours, true);
+            for (int i = 0; i < n; i++) {
+                int next = neighbours[i];
+                if (!visited.get(next)) {
+                    visited.set(next);
+                    if (predicate.test(grid.getCells().get(next).get())) {
+                        if (tail == queue.length) {
+                            if (head > queue.length / 2) {
+                                System.arraycopy(queue, head, queue, 0, tail - head);
+                                tail -= head;
+                                head = 0;
+                            } else {
+                                queue = Arrays.copyOf(queue, queue.length * 2);
+                            }
+                        }
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        if (sink != null) {
+            sink.record(GridMetrics.Metric.FLOOD_FILL, count, System.nanoTime() - startTime);
+        }
+        return count;
+    }
+
+    /**
+     * Label the connected components of the cells of the crawled Grid whose
+     * value matches the predicate.
+     *
+     * @param predicate the predicate that the value of a cell must match to be
+     * labelled
+     * @param neighbourhood the neighbourhood defining which cells are
+     * connected
+     * @return the connected components of the matching cells
+     * @see ConnectedComponents
+     */
+    public ConnectedComponents components(Predicate<? super E> predicate, Neighbourhood neighbourhood) {
+        return ConnectedComponents.of(grid, predicate, neighbourhood);
     }
 
     /**
@@ -102,28 +323,128 @@ public abstract class GridCrawler<E> {
     public abstract void crawl(Cell<E> startingPoint);
 
     /**
-     * Start crawling in the grid in a new Thread.
+     * Start crawling in the grid in a new Thread, or as a task of the pool if
+     * this crawler crawls in parallel.
      *
      * @param startingPoint the point where your search start
      */
     public void startCrawling(Cell<E> startingPoint) {
+        GridMetrics.Sink sink = GridMetrics.sink;
+        if (sink != null) {
+            crawlStart = System.nanoTime();
+        }
+        crawlSink = sink;
+        if (pool != null) {
+            submit(() -> crawl(startingPoint));
+            return;
+        }
         t = new Thread(() -> {
-            crawl(startingPoint);
+            try {
+                crawl(startingPoint);
+            } finally {
+                crawled();
+            }
         });
         t.start();
     }
 
     /**
-     * Block until the crawl is finished.
+     * Report a finished crawl and the cells collected by each flag.
+     */
+    private void crawled() {
+        GridMetrics.Sink sink = crawlSink;
+        if (sink == null) {
+            return;
+        }
+        crawlSink = null;
+        long elapsed = System.nanoTime() - crawlStart;
+        long total = 0;
+        AtomicReferenceArray<FlagSet> table = flags;
+        for (int slot = 0; slot < table.length(); slot++) {
+            FlagSet set = table.get(slot);
+            if (set != null) {
+                int cardinality = set.cardinality();
+                sink.record(GridMetrics.Metric.FLAGGED, cardinality, 0);
+                total += cardinality;
+            }
+        }
+        ConcurrentHashMap<Integer, FlagSet> map = largeFlags;
+        if (map != null) {
+            for (FlagSet set : map.values()) {
+                int cardinality = set.cardinality();
+                sink.record(GridMetrics.Metric.FLAGGED, cardinality, 0);
+                total += cardinality;
+            }
+        }
+        sink.record(GridMetrics.Metric.CRAWL, total, elapsed);
+    }
+
+    /**
+     * Block until the crawl is finished. If this crawler crawls in parallel,
+     * wait for the subcrawlers too.
+     *
+     * @see #awaitCompletion()
      */
     public void blockUtilFinished() {
         try {
-            t.join();
+            if (pool != null) {
+                awaitCompletion();
+            } else {
+                t.join();
+            }
         } catch (InterruptedException ex) {
             Logger.getLogger(GridCrawler.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
 
+    /**
+     * Block until the crawl and every subcrawler forked since are finished.
+     * This method must not be called from a crawl.
+     *
+     * @throws InterruptedException if the current thread is interrupted while
+     * waiting
+     * @throws CompletionException if the crawl or a subcrawler has thrown an
+     * exception, which is the cause of this one
+     */
+    public void awaitCompletion() throws InterruptedException {
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                pending.wait();
+            }
+        }
+        Throwable ex = failure.getAndSet(null);
+        if (ex != null) {
+            throw new CompletionException(ex);
+        }
+    }
+
+    /**
+     * Run the crawl as a task of the pool, forked in the current worker if it
+     * belongs to the pool, and count it until it is done.
+     */
+    private void submit(Runnable crawl) {
+        pending.incrementAndGet();
+        ForkJoinTask<?> task = ForkJoinTask.adapt(() -> {
+            try {
+                crawl.run();
+            } catch (Throwable ex) {
+                failure.compareAndSet(null, ex);
+            } finally {
+                if (pending.decrementAndGet() == 0) {
+                    crawled();
+                    synchronized (pending) {
+                        pending.notifyAll();
+                    }
+                }
+            }
+        });
+        if (ForkJoinTask.getPool() == pool) {
+            task.fork();
+        } else {
+            pool.execute(task);
+        }
+    }
+
     /**
      * A crawler that crawl in the same Grid that its parent
      * {@link GridLib.GridCrawler} and share the same flag list.
@@ -148,8 +469,7 @@ public abstract class GridCrawler<E> {
          */
         public Subcrawler() {
             this.state = 0;
-            this.id = idMaker;
-            idMaker--;
+            this.id = idMaker.getAndDecrement();
         }
 
         /**
@@ -193,5 +513,23 @@ public abstract class GridCrawler<E> {
         public void start(Cell<E> startingPoint) {
             crawl(startingPoint);
         }
+
+        /**
+         * Start crawling in the grid as a new task of the pool of the parent
+         * crawler, and return immediately. The crawl is run by an idle thread
+         * of the pool, or by the current one once it is done with its own
+         * work. If the parent crawler does not crawl in parallel, this is the
+         * same as {@link #start(GridLib.Grid.Cell)}.
+         *
+         * @param startingPoint the point where your search start
+         * @see GridCrawler#awaitCompletion()
+         */
+        public void fork(Cell<E> startingPoint) {
+            if (pool == null) {
+                start(startingPoint);
+            } else {
+                submit(() -> crawl(startingPoint));
+            }
+        }
     }
 }
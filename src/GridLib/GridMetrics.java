@@ -0,0 +1,115 @@
+package GridLib;
+
+/**
+ * The instrumentation of the grids and crawlers. The operations of
+ * {@link Grid} and {@link GridCrawler} are reported to the installed
+ * {@link Sink}, which can count them, time them or forward them to a
+ * monitoring system: see {@link CountingMetricsSink} and
+ * {@link JfrMetricsSink}.
+ * <p>
+ * The instrumentation is disabled until a sink is installed: an operation then
+ * only reads a volatile field, and does not read the clock. The sink is called
+ * from the thread running the operation, possibly from several threads at
+ * once, so it must be thread-safe and fast.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see CountingMetricsSink
+ * @see JfrMetricsSink
+ */
+public final class GridMetrics {
+
+    static volatile Sink sink;
+
+    private GridMetrics() {
+    }
+
+    /**
+     * Install the sink receiving the operations of every grid and crawler.
+     *
+     * @param sink the sink to install, or null to disable the instrumentation
+     */
+    public static void setSink(Sink sink) {
+        GridMetrics.sink = sink;
+    }
+
+    /**
+     * Returns the installed sink.
+     *
+     * @return the installed sink, or null if the instrumentation is disabled
+     */
+    public static Sink getSink() {
+        return sink;
+    }
+
+    /**
+     * The reported operations.
+     */
+    public enum Metric {
+
+        /**
+         * A modification of a cell with {@link Grid.Cell#set(Object)}, or with
+         * the methods of {@link Grid} relying on it. Not timed.
+         */
+        CELL_SET(false),
+        /**
+         * A call of the listeners of a grid with modified cells: the cells
+         * are the number of modified cells.
+         */
+        LISTENER_DISPATCH(true),
+        /**
+         * A generation of every cell of a grid with
+         * {@link Grid#regenerateCells(Grid.CellValueGenerator)} or its
+         * parallel version, listeners included.
+         */
+        REGENERATION(true),
+        /**
+         * A crawl started with
+         * {@link GridCrawler#startCrawling(Grid.Cell)}, until it is finished
+         * with all its subcrawlers: the cells are the number of flags set by
+         * the crawler.
+         */
+        CRAWL(true),
+        /**
+         * A flood fill of {@link GridCrawler#floodFill}: the cells are the
+         * number of flagged cells.
+         */
+        FLOOD_FILL(true),
+        /**
+         * The number of cells collected by a flag at the end of a crawl,
+         * reported once for each flag. Not timed.
+         */
+        FLAGGED(false);
+
+        private final boolean timed;
+
+        private Metric(boolean timed) {
+            this.timed = timed;
+        }
+
+        /**
+         * Returns true if the duration of this operation is reported.
+         *
+         * @return true if this operation is timed
+         */
+        public boolean isTimed() {
+            return timed;
+        }
+    }
+
+    /**
+     * A receiver of the operations of the grids and crawlers.
+     */
+    public interface Sink {
+
+        /**
+         * Record an operation.
+         *
+         * @param metric the operation
+         * @param cells the number of cells handled by the operation
+         * @param nanos the duration of the operation in nanoseconds, 0 if it
+         * is not {@link Metric#isTimed() timed}
+         */
+        void record(Metric metric, long cells, long nanos);
+    }
+}
@@ -0,0 +1,70 @@
+package GridLib;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of cell indexes ordered by a <code>double</code> key,
+ * stored in two parallel primitive arrays. An index can be pushed several
+ * times with different keys; it is up to the caller to skip the outdated
+ * entries when they are popped. The arrays only grow, so a heap reused for
+ * many searches stops allocating once it has reached its working size.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ */
+final class IndexHeap {
+
+    private int[] indexes = new int[64];
+    private double[] keys = new double[64];
+    private int size;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void push(int index, double key) {
+        if (size == indexes.length) {
+            indexes = Arrays.copyOf(indexes, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            indexes[i] = indexes[parent];
+            keys[i] = keys[parent];
+            i = parent;
+        }
+        indexes[i] = index;
+        keys[i] = key;
+    }
+
+    int pop() {
+        int top = indexes[0];
+        int index = indexes[--size];
+        double key = keys[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            indexes[i] = indexes[child];
+            keys[i] = keys[child];
+            i = child;
+        }
+        indexes[i] = index;
+        keys[i] = key;
+        return top;
+    }
+}
@@ -0,0 +1,99 @@
+package GridLib;
+
+import GridLib.GridMetrics.Metric;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A {@link GridMetrics.Sink} emitting JDK Flight Recorder events. Every
+ * operation is emitted as a <code>GridLib.Operation</code> event, except the
+ * modifications of cells, which are too frequent: they are counted and
+ * emitted every second as a <code>GridLib.CellSets</code> event.
+ * <p>
+ * The events are only created when a recording enables them, so this sink
+ * costs little when Flight Recorder is not recording. It requires a JDK
+ * providing the <code>jdk.jfr</code> API (8u262 or later).
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see GridMetrics#setSink(GridMetrics.Sink)
+ */
+public class JfrMetricsSink implements GridMetrics.Sink {
+
+    private final LongAdder cellSets;
+    private final Runnable periodic;
+
+    /**
+     * Construct a JfrMetricsSink and register its periodic event. Call
+     * {@link #dispose()} to unregister it once this sink is uninstalled.
+     */
+    public JfrMetricsSink() {
+        cellSets = new LongAdder();
+        periodic = () -> {
+            CellSetsEvent event = new CellSetsEvent();
+            event.count = cellSets.sumThenReset();
+            event.commit();
+        };
+        FlightRecorder.addPeriodicEvent(CellSetsEvent.class, periodic);
+    }
+
+    @Override
+    public void record(Metric metric, long cells, long nanos) {
+        if (metric == Metric.CELL_SET) {
+            cellSets.add(cells);
+            return;
+        }
+        OperationEvent event = new OperationEvent();
+        if (event.isEnabled()) {
+            event.operation = metric.name();
+            event.cells = cells;
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Unregister the periodic event of this sink.
+     */
+    public void dispose() {
+        FlightRecorder.removePeriodicEvent(periodic);
+    }
+
+    @Name("GridLib.Operation")
+    @Label("Grid Operation")
+    @Category("GridLib")
+    @Description("An operation of a grid or a crawler")
+    @StackTrace(false)
+    static final class OperationEvent extends Event {
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Cells")
+        long cells;
+
+        @Label("Elapsed")
+        @Timespan
+        long elapsed;
+    }
+
+    @Name("GridLib.CellSets")
+    @Label("Cell Modifications")
+    @Category("GridLib")
+    @Description("The number of cells modified since the previous event")
+    @StackTrace(false)
+    @Period("1 s")
+    static final class CellSetsEvent extends Event {
+
+        @Label("Count")
+        long count;
+    }
+}
@@ -0,0 +1,277 @@
+package GridLib;
+
+import java.util.function.IntPredicate;
+
+/**
+ * A {@link PathFinder} using the Jump Point Search algorithm, for grids where
+ * every walkable cell costs the same. A path moves to the eight surrounding
+ * cells with a cost of 1 for an adjacent cell and the square root of 2 for a
+ * diagonal-adjacent one, and a diagonal move is only allowed if both cells
+ * next to it are walkable.
+ * <p>
+ * Instead of opening every neighbour of a cell, the search jumps in straight
+ * lines over the cells that a shortest path has no reason to turn on, and
+ * only opens the cells where it may have to, so much fewer cells go through
+ * the open set than with {@link AStarFinder}. The returned paths still contain
+ * every cell between the start and the goal, and have the same cost as the
+ * ones of an AStarFinder using {@link CostFunction#walkable} and
+ * {@link Heuristic#octile}. The search relies on straight lines stopping at
+ * the borders, so the grid must have the {@link Topology#BOUNDED} topology.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ */
+public class JumpPointFinder extends PathFinder {
+
+    private final IntPredicate walkable;
+    private final int height;
+    private final int width;
+    private final int[] directions = new int[16];
+    private int goalRow;
+    private int goalColumn;
+
+    /**
+     * Construct a JumpPointFinder searching paths in the specified grid.
+     *
+     * @param grid the grid where the paths are searched
+     * @param walkable a predicate called with the index of a cell, true if a
+     * path can go through it
+     * @throws IllegalArgumentException if the grid is not bounded
+     */
+    public JumpPointFinder(AbstractGrid<?> grid, IntPredicate walkable) {
+        super(grid);
+        if (grid.getTopology() != Topology.BOUNDED) {
+            throw new IllegalArgumentException("Jump Point Search needs a bounded grid");
+        }
+        this.walkable = walkable;
+        this.height = grid.height();
+        this.width = grid.width();
+    }
+
+    @Override
+    public int[] findPath(int start, int goal) {
+        checkIndex(start);
+        checkIndex(goal);
+        lastCost = Double.POSITIVE_INFINITY;
+        if (!walkable.test(goal)) {
+            return null;
+        }
+        goalRow = goal / width;
+        goalColumn = goal % width;
+        int gen = nextGeneration();
+        costs[start] = 0;
+        parents[start] = -1;
+        seen[start] = gen;
+        open.push(start, octileDistance(width, start, goal));
+        while (!open.isEmpty()) {
+            int current = open.pop();
+            if (closed[current] == gen) {
+                continue;
+            }
+            closed[current] = gen;
+            if (current == goal) {
+                lastCost = costs[goal];
+                return expand(goal);
+            }
+            int row = current / width;
+            int column = current % width;
+            int n = prunedDirections(current, row, column);
+            for (int i = 0; i < n; i += 2) {
+                int dr = directions[i];
+                int dc = directions[i + 1];
+                int jumpPoint = dr != 0 && dc != 0
+                        ? jumpDiagonal(row + dr, column + dc, dr, dc)
+                        : jumpStraight(row + dr, column + dc, dr, dc);
+                if (jumpPoint < 0 || closed[jumpPoint] == gen) {
+                    continue;
+                }
+                double nextCost = costs[current] + octileDistance(width, current, jumpPoint);
+                if (seen[jumpPoint] != gen || nextCost < costs[jumpPoint]) {
+                    seen[jumpPoint] = gen;
+                    costs[jumpPoint] = nextCost;
+                    parents[jumpPoint] = current;
+                    open.push(jumpPoint, nextCost + octileDistance(width, jumpPoint, goal));
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean walkable(int row, int column) {
+        return row >= 0 && column >= 0 && row < height && column < width
+                && walkable.test(row * width + column);
+    }
+
+    /**
+     * Put in the directions buffer the row and column steps of the directions
+     * worth exploring from the specified cell, given the direction it was
+     * reached from.
+     *
+     * @return the number of values put in the buffer (twice the number of
+     * directions)
+     */
+    private int prunedDirections(int index, int row, int column) {
+        int n = 0;
+        int parent = parents[index];
+        if (parent < 0) {
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    if ((dr != 0 || dc != 0) && walkable(row + dr, column + dc)
+                            && (dr == 0 || dc == 0 || (walkable(row + dr, column) && walkable(row, column + dc)))) {
+                        directions[n++] = dr;
+                        directions[n++] = dc;
+                    }
+                }
+            }
+            return n;
+        }
+        int dr = Integer.signum(row - parent / width);
+        int dc = Integer.signum(column - parent % width);
+        if (dr != 0 && dc != 0) {
+            boolean vertical = walkable(row + dr, column);
+            boolean horizontal = walkable(row, column + dc);
+            if (vertical) {
+                directions[n++] = dr;
+                directions[n++] = 0;
+            }
+            if (horizontal) {
+                directions[n++] = 0;
+                directions[n++] = dc;
+            }
+            if (vertical && horizontal) {
+                directions[n++] = dr;
+                directions[n++] = dc;
+            }
+        } else if (dc != 0) {
+            boolean next = walkable(row, column + dc);
+            boolean up = walkable(row - 1, column);
+            boolean down = walkable(row + 1, column);
+            if (next) {
+                directions[n++] = 0;
+                directions[n++] = dc;
+                if (up) {
+                    directions[n++] = -1;
+                    directions[n++] = dc;
+                }
+                if (down) {
+                    directions[n++] = 1;
+                    directions[n++] = dc;
+                }
+            }
+            if (up) {
+                directions[n++] = -1;
+                directions[n++] = 0;
+            }
+            if (down) {
+                directions[n++] = 1;
+                directions[n++] = 0;
+            }
+        } else {
+            boolean next = walkable(row + dr, column);
+            boolean left = walkable(row, column - 1);
+            boolean right = walkable(row, column + 1);
+            if (next) {
+                directions[n++] = dr;
+                directions[n++] = 0;
+                if (left) {
+                    directions[n++] = dr;
+                    directions[n++] = -1;
+                }
+                if (right) {
+                    directions[n++] = dr;
+                    directions[n++] = 1;
+                }
+            }
+            if (left) {
+                directions[n++] = 0;
+                directions[n++] = -1;
+            }
+            if (right) {
+                directions[n++] = 0;
+                directions[n++] = 1;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Jump from the specified cell in a horizontal or vertical direction.
+     *
+     * @return the index of the jump point, or -1 if there is none
+     */
+    private int jumpStraight(int row, int column, int dr, int dc) {
+        while (true) {
+            if (!walkable(row, column)) {
+                return -1;
+            }
+            if (row == goalRow && column == goalColumn) {
+                return row * width + column;
+            }
+            if (dc != 0) {
+                if ((walkable(row - 1, column) && !walkable(row - 1, column - dc))
+                        || (walkable(row + 1, column) && !walkable(row + 1, column - dc))) {
+                    return row * width + column;
+                }
+            } else {
+                if ((walkable(row, column - 1) && !walkable(row - dr, column - 1))
+                        || (walkable(row, column + 1) && !walkable(row - dr, column + 1))) {
+                    return row * width + column;
+                }
+            }
+            row += dr;
+            column += dc;
+        }
+    }
+
+    /**
+     * Jump from the specified cell in a diagonal direction.
+     *
+     * @return the index of the jump point, or -1 if there is none
+     */
+    private int jumpDiagonal(int row, int column, int dr, int dc) {
+        while (true) {
+            if (!walkable(row, column)) {
+                return -1;
+            }
+            if ((row == goalRow && column == goalColumn)
+                    || jumpStraight(row, column + dc, 0, dc) >= 0
+                    || jumpStraight(row + dr, column, dr, 0) >= 0) {
+                return row * width + column;
+            }
+            if (!walkable(row + dr, column) || !walkable(row, column + dc)) {
+                return -1;
+            }
+            row += dr;
+            column += dc;
+        }
+    }
+
+    /**
+     * Returns every cell of the path from the start to the goal, filling the
+     * straight or diagonal segments between the jump points.
+     */
+    private int[] expand(int goal) {
+        int length = 1;
+        for (int i = goal; parents[i] >= 0; i = parents[i]) {
+            int p = parents[i];
+            length += Math.max(Math.abs(i / width - p / width), Math.abs(i % width - p % width));
+        }
+        int[] path = new int[length];
+        int k = length - 1;
+        path[k] = goal;
+        for (int i = goal; parents[i] >= 0; i = parents[i]) {
+            int p = parents[i];
+            int step = Integer.signum(p / width - i / width) * width + Integer.signum(p % width - i % width);
+            for (int cell = i + step; cell != p; cell += step) {
+                path[--k] = cell;
+            }
+            path[--k] = p;
+        }
+        return path;
+    }
+
+    @Override
+    PathFinder copy() {
+        return new JumpPointFinder(grid, walkable);
+    }
+}
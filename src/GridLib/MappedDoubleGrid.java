@@ -0,0 +1,282 @@
+package GridLib;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.DoubleStream;
+
+/**
+ * A grid of <code>double</code> values stored in a memory-mapped file, with the
+ * same navigation methods as {@link DoubleGrid}.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see MappedGrid
+ */
+public class MappedDoubleGrid extends MappedGrid<MappedDoubleGrid.Cell> {
+
+    private MappedDoubleGrid(FileChannel channel, int height, int width, boolean readOnly) throws IOException {
+        super(channel, height, width, Double.BYTES, readOnly);
+    }
+
+    /**
+     * Create a new file containing a grid of zeros with the specified height
+     * and width.
+     *
+     * @param path the file to create
+     * @param height the height of the grid
+     * @param width the width of the grid
+     * @return the new grid, opened in read-write mode
+     * @throws IOException if the file already exists or cannot be created
+     */
+    public static MappedDoubleGrid create(Path path, int height, int width) throws IOException {
+        FileChannel channel = create(path, height, width, Double.BYTES, TYPE_DOUBLE);
+        try {
+            return new MappedDoubleGrid(channel, height, width, false);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open a grid file created by {@link #create(Path, int, int)}. Only the
+     * header is read: the values are loaded when they are used.
+     *
+     * @param path the file to open
+     * @param readOnly true to open the grid in read-only mode
+     * @return the opened grid
+     * @throws IOException if the file cannot be opened or is not a grid of
+     * <code>double</code> values
+     */
+    public static MappedDoubleGrid open(Path path, boolean readOnly) throws IOException {
+        int[] size = new int[2];
+        FileChannel channel = open(path, readOnly, Double.BYTES, TYPE_DOUBLE, size);
+        try {
+            return new MappedDoubleGrid(channel, size[0], size[1], readOnly);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reset and generate the value of each cell with the provided generator.
+     *
+     * @param generator a tool that is use to generate the content of each cell
+     */
+    public void regenerateCells(DoubleGrid.DoubleCellValueGenerator generator) {
+        int width = width();
+        for (int row = 0, i = 0; row < height(); row++) {
+            for (int column = 0; column < width; column++, i++) {
+                put(generator.generate(row, column), i);
+            }
+        }
+    }
+
+    /**
+     * Reset and generate the value of each cell with the provided generator,
+     * splitting the rows in bands generated in parallel in the provided pool.
+     * See {@link Grid.CellValueGenerator} for the contract of the generator.
+     *
+     * @param generator a tool that is use to generate the content of each cell
+     * @param pool the pool in which the cells are generated
+     */
+    public void regenerateCells(DoubleGrid.DoubleCellValueGenerator generator, ForkJoinPool pool) {
+        int width = width();
+        RowBands.run(pool, height(), width, (fromRow, toRow) -> {
+            for (int row = fromRow, i = fromRow * width; row < toRow; row++) {
+                for (int column = 0; column < width; column++, i++) {
+                    put(generator.generate(row, column), i);
+                }
+            }
+        });
+    }
+
+    /**
+     * Set the value of every cell to the provided one.
+     *
+     * @param value the new value of each cell
+     */
+    public void fill(double value) {
+        for (int i = 0; i < size(); i++) {
+            put(value, i);
+        }
+    }
+
+    /**
+     * Put a value in the specified row and column.
+     *
+     * @param value the value to put
+     * @param row the row where the value is put
+     * @param column the column where the value is put
+     * @return true if the provided row and column match the height and width of
+     * this grid, false otherwise
+     */
+    public boolean put(double value, int row, int column) {
+        if (contains(row, column)) {
+            put(value, index(row, column));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Put a value at the specified index.
+     *
+     * @param value the value to put
+     * @param index the index where the value is put
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws java.nio.ReadOnlyBufferException if this grid is read-only
+     */
+    public void put(double value, int index) {
+        checkIndex(index);
+        segment(index).putDouble(offset(index), value);
+    }
+
+    /**
+     * Get the value in the specified row and column.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return the value of the specified cell
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public double get(int row, int column) {
+        checkBounds(row, column);
+        return get(index(row, column));
+    }
+
+    /**
+     * Get the value at the specified index.
+     *
+     * @param index the specified index
+     * @return the value at the specified index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public double get(int index) {
+        checkIndex(index);
+        return segment(index).getDouble(offset(index));
+    }
+
+    /**
+     * get the adjacents cells of the specified one.
+     *
+     * @param cell the specified cell
+     * @param deleteNulls if set to true, delete the non-existant cells (when
+     * the specified cell is in a border or a corner)
+     * @return a list containing the adjacents cells in the order defined by the
+     * {@link #TOP}, {@link #RIGHT}, {@link #BOTTOM} and {@link #LEFT}
+     * constants
+     * @see #getAdjacents(int, int, boolean)
+     */
+    public ArrayList<Cell> getAdjacents(Cell cell, boolean deleteNulls) {
+        return getAdjacents(cell.getRow(), cell.getColumn(), deleteNulls);
+    }
+
+    /**
+     * get the diagonal-adjacents cells of the specified one.
+     *
+     * @param cell the specified cell
+     * @param deleteNulls if set to true, delete the non-existant cells (when
+     * the specified cell is in a border or a corner)
+     * @return a list containing the diagonal-adjacents cells in the order
+     * defined by the {@link #TOP_LEFT}, {@link #TOP_RIGHT},
+     * {@link #BOTTOM_RIGHT} and {@link #BOTTOM_LEFT} constants
+     * @see #getDiagonalsAdjacents(int, int, boolean)
+     */
+    public ArrayList<Cell> getDiagonalsAdjacents(Cell cell, boolean deleteNulls) {
+        return getDiagonalsAdjacents(cell.getRow(), cell.getColumn(), deleteNulls);
+    }
+
+    /**
+     * Returns a sequential stream of the values of this grid, row after row.
+     *
+     * @return a stream of the values of this grid
+     */
+    public DoubleStream valueStream() {
+        return indexStream().mapToDouble(this::get);
+    }
+
+    @Override
+    protected Cell cellAt(int index) {
+        return new Cell(index);
+    }
+
+    /**
+     * A lightweight handle on a cell of a {@link MappedDoubleGrid}. It reads and
+     * writes the value directly in the mapped file, so two handles on the same
+     * cell are equal.
+     */
+    public final class Cell {
+
+        private final int index;
+
+        private Cell(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Get the index of this Cell in its grid.
+         *
+         * @return the index of this Cell
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Get the row number of this Cell.
+         *
+         * @return the row number of this Cell
+         */
+        public int getRow() {
+            return rowOf(index);
+        }
+
+        /**
+         * Get the column number of this Cell.
+         *
+         * @return the column number of this Cell
+         */
+        public int getColumn() {
+            return columnOf(index);
+        }
+
+        /**
+         * Get the value of this Cell.
+         *
+         * @return the value of this Cell
+         */
+        public double get() {
+            return MappedDoubleGrid.this.get(index);
+        }
+
+        /**
+         * Set the value of this Cell.
+         *
+         * @param value the new value
+         */
+        public void set(double value) {
+            put(value, index);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Cell && ((Cell) obj).grid() == MappedDoubleGrid.this
+                    && ((Cell) obj).index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        private MappedDoubleGrid grid() {
+            return MappedDoubleGrid.this;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package GridLib;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A grid of fixed-size values stored in a memory-mapped file instead of the
+ * heap. Opening a grid only maps its file: the pages are loaded by the
+ * operating system when the cells are read, and written back when it needs
+ * the memory or when {@link #force()} is called. A grid much larger than the
+ * heap can then be opened instantly, and its values are never scanned by the
+ * garbage collector.
+ * <p>
+ * A file starts with a header of {@value #HEADER_SIZE} bytes containing the
+ * height, width and type of the grid, followed by the values row after row in
+ * little-endian order. The file is mapped in segments of 1 GiB, so a grid can
+ * be larger than the 2 GiB limit of a single mapping.
+ * <p>
+ * The mappings stay valid until they are garbage collected, even after the
+ * grid is {@link #close() closed}, so the cells must not be used anymore once
+ * it is closed. Like the other grids, a MappedGrid is not thread-safe, but
+ * distinct cells can be written from distinct threads.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @param <C> the class of the cells of this grid
+ * @see MappedIntGrid
+ * @see MappedDoubleGrid
+ */
+public abstract class MappedGrid<C> extends AbstractGrid<C> implements Closeable {
+
+    /**
+     * The size in bytes of the header of a grid file.
+     */
+    public static final int HEADER_SIZE = 64;
+
+    static final int TYPE_INT = 1;
+    static final int TYPE_DOUBLE = 2;
+
+    private static final int MAGIC = 0x4744524D;
+    private static final int VERSION = 1;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int elementSize;
+    private final boolean readOnly;
+
+    MappedGrid(FileChannel channel, int height, int width, int elementSize, boolean readOnly) throws IOException {
+        super(height, width);
+        this.channel = channel;
+        this.elementSize = elementSize;
+        this.readOnly = readOnly;
+        long end = HEADER_SIZE + (long) height * width * elementSize;
+        segments = new MappedByteBuffer[(int) ((end + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+        FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(mode, start, Math.min(end - start, 1L << SEGMENT_SHIFT));
+            segments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Create a new grid file with its header. The values are not written: the
+     * file is extended by its mapping, so they are all zero.
+     */
+    static FileChannel create(Path path, int height, int width, int elementSize, int type) throws IOException {
+        if (height < 0 || width < 0 || (long) height * width > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Illegal size: " + height + "x" + width);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(type).putInt(elementSize)
+                    .putInt(height).putInt(width).rewind();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open an existing grid file and check its header.
+     *
+     * @return the opened channel, then the height and the width of the grid
+     * in <code>size</code>
+     */
+    static FileChannel open(Path path, boolean readOnly, int elementSize, int type, int[] size) throws IOException {
+        FileChannel channel = readOnly
+                ? FileChannel.open(path, StandardOpenOption.READ)
+                : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Truncated grid header: " + path);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a grid file: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported grid file version " + version + ": " + path);
+            }
+            if (header.getInt() != type || header.getInt() != elementSize) {
+                throw new IOException("Wrong grid value type: " + path);
+            }
+            size[0] = header.getInt();
+            size[1] = header.getInt();
+            if (size[0] < 0 || size[1] < 0 || (long) size[0] * size[1] > Integer.MAX_VALUE) {
+                throw new IOException("Illegal grid size " + size[0] + "x" + size[1] + ": " + path);
+            }
+            if (channel.size() < HEADER_SIZE + (long) size[0] * size[1] * elementSize) {
+                throw new IOException("Truncated grid file: " + path);
+            }
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the segment containing the value at the specified index.
+     */
+    final ByteBuffer segment(int index) {
+        return segments[(int) ((HEADER_SIZE + (long) index * elementSize) >>> SEGMENT_SHIFT)];
+    }
+
+    /**
+     * Returns the position of the value at the specified index in its segment.
+     */
+    final int offset(int index) {
+        return (int) ((HEADER_SIZE + (long) index * elementSize) & SEGMENT_MASK);
+    }
+
+    final void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+    }
+
+    /**
+     * Returns true if this grid was opened in read-only mode.
+     *
+     * @return true if the values cannot be modified
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Write the modified values to the file. When this method returns, the
+     * values are stored on the device holding the file.
+     */
+    public void force() {
+        if (!readOnly) {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+    }
+
+    /**
+     * Write the modified values to the file, then close it.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            force();
+            channel.close();
+        }
+    }
+}
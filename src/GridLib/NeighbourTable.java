@@ -0,0 +1,134 @@
+package GridLib;
+
+import java.util.function.IntConsumer;
+
+/**
+ * The neighbours of every cell of a grid for a {@link Neighbourhood} and a
+ * {@link Topology}. The cells far enough from the borders, whose neighbours
+ * are all in the grid, add the index offsets of the neighbourhood for the
+ * parity of their row to their index. The neighbours of the other cells are
+ * resolved by the topology once, when the table is built, and stored row
+ * after row in a border table, so finding a neighbour is always a lookup.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ */
+final class NeighbourTable {
+
+    final Topology topology;
+    final Neighbourhood neighbourhood;
+    private final int width;
+    private final int size;
+    private final int[] evenOffsets;
+    private final int[] oddOffsets;
+    private final int top;
+    private final int bottom;
+    private final int left;
+    private final int right;
+    private final int borderPerRow;
+    private final int[] border;
+
+    NeighbourTable(Topology topology, Neighbourhood neighbourhood, int height, int width) {
+        this.topology = topology;
+        this.neighbourhood = neighbourhood;
+        this.width = width;
+        this.size = neighbourhood.size();
+        this.evenOffsets = neighbourhood.offsets(width, 0);
+        this.oddOffsets = neighbourhood.offsets(width, 1);
+        int r = neighbourhood.radius();
+        this.top = Math.min(r, height);
+        this.bottom = Math.max(top, height - r);
+        this.left = Math.min(r, width);
+        this.right = Math.max(left, width - r);
+        this.borderPerRow = left + width - right;
+        int borderCells = (top + height - bottom) * width + (bottom - top) * borderPerRow;
+        this.border = new int[borderCells * size];
+        int[] rowOffsets = neighbourhood.rowOffsets;
+        for (int row = 0; row < height; row++) {
+            int[] columnOffsets = neighbourhood.columnOffsets(row);
+            for (int column = 0; column < width; column++) {
+                if (isInterior(row, column)) {
+                    column = right - 1;
+                    continue;
+                }
+                int slot = borderSlot(row, column) * size;
+                for (int k = 0; k < size; k++) {
+                    border[slot + k] = topology.resolve(row + rowOffsets[k], column + columnOffsets[k], height, width);
+                }
+            }
+        }
+    }
+
+    private boolean isInterior(int row, int column) {
+        return row >= top && row < bottom && column >= left && column < right;
+    }
+
+    /**
+     * Returns the position of a cell that is not in the interior in the
+     * border table.
+     */
+    private int borderSlot(int row, int column) {
+        if (row < top) {
+            return row * width + column;
+        }
+        if (row >= bottom) {
+            return top * width + (bottom - top) * borderPerRow + (row - bottom) * width + column;
+        }
+        int base = top * width + (row - top) * borderPerRow;
+        return column < left ? base + column : base + left + column - right;
+    }
+
+    /**
+     * Returns the index of the specified neighbour of a cell, or
+     * {@link AbstractGrid#NONE} if it does not exist.
+     */
+    int neighbour(int index, int row, int column, int k) {
+        if (isInterior(row, column)) {
+            return index + ((row & 1) == 0 ? evenOffsets : oddOffsets)[k];
+        }
+        return border[borderSlot(row, column) * size + k];
+    }
+
+    /**
+     * Fill the buffer with the neighbours of a cell.
+     *
+     * @return the number of indexes put in the buffer
+     */
+    int fill(int index, int row, int column, int[] buffer, boolean deleteNulls) {
+        if (isInterior(row, column)) {
+            int[] offsets = (row & 1) == 0 ? evenOffsets : oddOffsets;
+            for (int k = 0; k < size; k++) {
+                buffer[k] = index + offsets[k];
+            }
+            return size;
+        }
+        int slot = borderSlot(row, column) * size;
+        int n = 0;
+        for (int k = 0; k < size; k++) {
+            int neighbour = border[slot + k];
+            if (neighbour != AbstractGrid.NONE || !deleteNulls) {
+                buffer[n++] = neighbour;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Call the visitor with each existing neighbour of a cell.
+     */
+    void forEach(int index, int row, int column, IntConsumer visitor) {
+        if (isInterior(row, column)) {
+            for (int offset : (row & 1) == 0 ? evenOffsets : oddOffsets) {
+                visitor.accept(index + offset);
+            }
+            return;
+        }
+        int slot = borderSlot(row, column) * size;
+        for (int k = 0; k < size; k++) {
+            int neighbour = border[slot + k];
+            if (neighbour != AbstractGrid.NONE) {
+                visitor.accept(neighbour);
+            }
+        }
+    }
+}
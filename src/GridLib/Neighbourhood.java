@@ -0,0 +1,220 @@
+package GridLib;
+
+/**
+ * An immutable set of row and column offsets describing the neighbours of a
+ * cell. The stock {@link #VON_NEUMANN}, {@link #DIAGONALS} and {@link #MOORE}
+ * neighbourhoods keep the order of the {@link AbstractGrid#TOP} and
+ * {@link AbstractGrid#TOP_LEFT} constants, so a neighbour buffer filled
+ * without deleting the nulls can be read with them.
+ * <p>
+ * The column offsets of a neighbourhood can depend on the parity of the row of
+ * the cell, like the {@link #HEX} one: a hexagonal map is stored in a
+ * rectangular grid whose odd rows are shifted by half a cell.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see AbstractGrid#forEachNeighbour(int, Neighbourhood,
+ * java.util.function.IntConsumer)
+ */
+public final class Neighbourhood {
+
+    /**
+     * The four adjacent cells, in the order of the {@link AbstractGrid#TOP},
+     * {@link AbstractGrid#RIGHT}, {@link AbstractGrid#BOTTOM} and
+     * {@link AbstractGrid#LEFT} constants.
+     */
+    public static final Neighbourhood VON_NEUMANN = new Neighbourhood(
+            new int[]{-1, 0, 1, 0},
+            new int[]{0, 1, 0, -1});
+
+    /**
+     * The four diagonal-adjacent cells, in the order of the
+     * {@link AbstractGrid#TOP_LEFT}, {@link AbstractGrid#TOP_RIGHT},
+     * {@link AbstractGrid#BOTTOM_RIGHT} and {@link AbstractGrid#BOTTOM_LEFT}
+     * constants.
+     */
+    public static final Neighbourhood DIAGONALS = new Neighbourhood(
+            new int[]{-1, -1, 1, 1},
+            new int[]{-1, 1, 1, -1});
+
+    /**
+     * The eight surrounding cells: the {@link #VON_NEUMANN} ones followed by
+     * the {@link #DIAGONALS} ones.
+     */
+    public static final Neighbourhood MOORE = new Neighbourhood(
+            new int[]{-1, 0, 1, 0, -1, -1, 1, 1},
+            new int[]{0, 1, 0, -1, -1, 1, 1, -1});
+
+    /**
+     * The six cells around a cell of a hexagonal map with pointy tops, whose
+     * odd rows are shifted right by half a cell ("odd-r" layout): top-left,
+     * top-right, right, bottom-right, bottom-left and left.
+     */
+    public static final Neighbourhood HEX = ofRowParity(
+            new int[]{-1, -1, 0, 1, 1, 0},
+            new int[]{-1, 0, 1, 0, -1, -1},
+            new int[]{0, 1, 1, 1, 0, -1});
+
+    final int[] rowOffsets;
+    final int[] columnOffsets;
+    final int[] oddColumnOffsets;
+    private final int radius;
+    private volatile Offsets offsets;
+
+    /**
+     * Construct a Neighbourhood from the row and column offsets of each
+     * neighbour.
+     *
+     * @param rowOffsets the row offset of each neighbour
+     * @param columnOffsets the column offset of each neighbour
+     * @throws IllegalArgumentException if the two arrays have not the same
+     * length
+     */
+    public Neighbourhood(int[] rowOffsets, int[] columnOffsets) {
+        this(rowOffsets, columnOffsets, null);
+    }
+
+    private Neighbourhood(int[] rowOffsets, int[] columnOffsets, int[] oddColumnOffsets) {
+        if (rowOffsets.length != columnOffsets.length
+                || (oddColumnOffsets != null && oddColumnOffsets.length != columnOffsets.length)) {
+            throw new IllegalArgumentException("rowOffsets and columnOffsets must have the same length");
+        }
+        this.rowOffsets = rowOffsets.clone();
+        this.columnOffsets = columnOffsets.clone();
+        this.oddColumnOffsets = oddColumnOffsets == null ? this.columnOffsets : oddColumnOffsets.clone();
+        int r = 0;
+        for (int i = 0; i < rowOffsets.length; i++) {
+            r = Math.max(r, Math.max(Math.abs(rowOffsets[i]), Math.abs(columnOffsets[i])));
+            r = Math.max(r, Math.abs(this.oddColumnOffsets[i]));
+        }
+        this.radius = r;
+    }
+
+    /**
+     * Returns a Neighbourhood whose column offsets depend on the parity of the
+     * row of the cell.
+     *
+     * @param rowOffsets the row offset of each neighbour
+     * @param evenRowColumnOffsets the column offset of each neighbour of a
+     * cell in an even row
+     * @param oddRowColumnOffsets the column offset of each neighbour of a cell
+     * in an odd row
+     * @return a new Neighbourhood
+     * @throws IllegalArgumentException if the arrays have not the same length
+     * @see #HEX
+     */
+    public static Neighbourhood ofRowParity(int[] rowOffsets, int[] evenRowColumnOffsets, int[] oddRowColumnOffsets) {
+        return new Neighbourhood(rowOffsets, evenRowColumnOffsets, oddRowColumnOffsets);
+    }
+
+    /**
+     * Returns the number of neighbours in this Neighbourhood.
+     *
+     * @return the number of neighbours
+     */
+    public int size() {
+        return rowOffsets.length;
+    }
+
+    /**
+     * Returns the row offset of the specified neighbour.
+     *
+     * @param neighbour the number of the neighbour
+     * @return the row offset of the specified neighbour
+     */
+    public int rowOffset(int neighbour) {
+        return rowOffsets[neighbour];
+    }
+
+    /**
+     * Returns the column offset of the specified neighbour of a cell in an
+     * even row.
+     *
+     * @param neighbour the number of the neighbour
+     * @return the column offset of the specified neighbour
+     * @see #columnOffset(int, int)
+     */
+    public int columnOffset(int neighbour) {
+        return columnOffsets[neighbour];
+    }
+
+    /**
+     * Returns the column offset of the specified neighbour of a cell in the
+     * specified row.
+     *
+     * @param neighbour the number of the neighbour
+     * @param row the row of the cell
+     * @return the column offset of the specified neighbour
+     */
+    public int columnOffset(int neighbour, int row) {
+        return columnOffsets(row)[neighbour];
+    }
+
+    /**
+     * Returns true if the column offsets of this Neighbourhood depend on the
+     * parity of the row of the cell.
+     *
+     * @return true if the odd rows have their own column offsets
+     */
+    public boolean dependsOnRowParity() {
+        return oddColumnOffsets != columnOffsets;
+    }
+
+    /**
+     * Returns the column offsets of the neighbours of a cell in the specified
+     * row; must not be modified.
+     */
+    int[] columnOffsets(int row) {
+        return (row & 1) == 0 ? columnOffsets : oddColumnOffsets;
+    }
+
+    /**
+     * Returns the greatest distance, in rows or columns, between a cell and
+     * one of its neighbours. A cell that is at least this far from every
+     * border has all its neighbours in the grid.
+     *
+     * @return the radius of this Neighbourhood
+     */
+    public int radius() {
+        return radius;
+    }
+
+    /**
+     * Returns the index offsets of the neighbours of a cell of the specified
+     * row in a grid of the specified width. The tables of the last width
+     * asked for are kept, so grids of the same width share them.
+     *
+     * @param width the width of the grid
+     * @param row the row of the cell
+     * @return the index offset of each neighbour; must not be modified
+     */
+    int[] offsets(int width, int row) {
+        Offsets o = offsets;
+        if (o == null || o.width != width) {
+            o = new Offsets(width, table(width, columnOffsets), table(width, oddColumnOffsets));
+            offsets = o;
+        }
+        return (row & 1) == 0 ? o.even : o.odd;
+    }
+
+    private int[] table(int width, int[] columns) {
+        int[] table = new int[rowOffsets.length];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = rowOffsets[i] * width + columns[i];
+        }
+        return table;
+    }
+
+    private static final class Offsets {
+
+        private final int width;
+        private final int[] even;
+        private final int[] odd;
+
+        private Offsets(int width, int[] even, int[] odd) {
+            this.width = width;
+            this.even = even;
+            this.odd = odd;
+        }
+    }
+}
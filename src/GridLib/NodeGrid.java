@@ -1,9 +1,16 @@
 package GridLib;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
 import javafx.scene.Node;
-import GridLib.Grid.Cell;
-import GridLib.Grid.Cell.CellListener;
 import javafx.scene.layout.GridPane;
 
 /**
@@ -11,6 +18,14 @@ import javafx.scene.layout.GridPane;
  * A {@link Grid} that can only contains {@link javafx.scene.Node} elements or
  * but can be bound to a {@link javafx.scene.layout.GridPane} to modify it
  * dynamically.
+ * <p>
+ * The bound panes are not modified each time a cell is modified: the modified
+ * cells are collected and the panes are updated once, on the JavaFX
+ * Application Thread, with only the nodes that actually changed. A node
+ * replacing another one takes its place in the children of the pane, so a
+ * full refresh of the grid costs a single pass over the children. As long as
+ * no pane is bound, the modifications are not collected and JavaFX is never
+ * used, so a NodeGrid can be modified without a running JavaFX toolkit.
  *
  * @author Jordan Vésy
  * @since 1.0
@@ -20,7 +35,10 @@ import javafx.scene.layout.GridPane;
  */
 public class NodeGrid<E extends Node> extends Grid<E> {
 
-    private final ArrayList<GridPane> boundPanes;
+    private final CopyOnWriteArrayList<Binding> boundPanes;
+    private final FlagSet dirty;
+    private final AtomicBoolean flushScheduled;
+    private final GridListener<E> listener = this::changed;
 
     /**
      * Construct a NodeGrid with the choosen height and width and fill the cells
@@ -31,7 +49,9 @@ public class NodeGrid<E extends Node> extends Grid<E> {
      */
     public NodeGrid(int height, int width) {
         super(height, width);
-        boundPanes = new ArrayList<>();
+        boundPanes = new CopyOnWriteArrayList<>();
+        dirty = FlagSet.concurrent(size());
+        flushScheduled = new AtomicBoolean();
     }
 
     /**
@@ -44,37 +64,173 @@ public class NodeGrid<E extends Node> extends Grid<E> {
      */
     public NodeGrid(int height, int width, CellValueGenerator<E> generator) {
         super(height, width, generator);
-        boundPanes = new ArrayList<>();
-        for (Cell cell : getCells()) {
-            cell.addCellListener((CellListener<E>) (Cell<E> c, E oldValue, E newValue) -> {
-                for (GridPane gridPane : boundPanes) {
-                    gridPane.getChildren().remove(oldValue);
-                    gridPane.add(newValue, c.getColumn(), c.getRow());
-                }
-            });
-        }
+        boundPanes = new CopyOnWriteArrayList<>();
+        dirty = FlagSet.concurrent(size());
+        flushScheduled = new AtomicBoolean();
     }
 
     /**
-     * Bind the choosen {@link javafx.scene.layout.GridPane} to this Grid.
+     * Bind the choosen {@link javafx.scene.layout.GridPane} to this Grid. This
+     * method must be called from the JavaFX Application Thread, and like the
+     * modifications of the grid, not while it is modified from another
+     * thread: binding the first pane registers the grid listener updating
+     * the panes.
+     * <p>
+     * The pane contains a node for each cell of the grid. To display a large
+     * grid, use a {@link VirtualGridView} instead.
      *
      * @param p the GridPane to bind
      */
     public void bind(GridPane p) {
-        for (Cell<E> cell : getCells()) {
-            p.add(cell.get(), cell.getColumn(), cell.getRow());
+        Binding binding = new Binding(p, size());
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < size(); i++) {
+            E node = getCell(i).get();
+            if (node != null) {
+                GridPane.setConstraints(node, columnOf(i), rowOf(i));
+                binding.nodes[i] = node;
+                nodes.add(node);
+            }
+        }
+        p.getChildren().addAll(nodes);
+        if (boundPanes.isEmpty()) {
+            addGridListener(listener);
         }
-        boundPanes.add(p);
+        boundPanes.add(binding);
     }
 
     /**
      * Unbind the choosen {@link javafx.scene.layout.GridPane} to this Grid.
+     * Unbinding the last pane unregisters the grid listener updating the
+     * panes, so this method must not be called while the grid is modified
+     * from another thread either.
      *
      * @param p the GridPane to unbind
-     * 
+     *
      * @return true if the GridPane was bound, false otherwise
      */
     public boolean unbind(GridPane p) {
-        return boundPanes.remove(p);
+        if (!boundPanes.removeIf(binding -> binding.pane == p)) {
+            return false;
+        }
+        if (boundPanes.isEmpty()) {
+            removeGridListener(listener);
+        }
+        return true;
+    }
+
+    /**
+     * Mark the modified cells as dirty and schedule an update of the bound
+     * panes if there is none pending. The listener is only registered while
+     * a pane is bound: a pane bound later reads the current nodes.
+     */
+    private void changed(ChangeSet<E> changes) {
+        if (boundPanes.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            dirty.set(changes.index(i));
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::flush);
+        }
+    }
+
+    /**
+     * Update every bound pane with the current nodes of the dirty cells.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        int count = 0;
+        int[] indexes = new int[dirty.cardinality()];
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            if (dirty.clear(i)) {
+                if (count == indexes.length) {
+                    indexes = Arrays.copyOf(indexes, count * 2 + 1);
+                }
+                indexes[count++] = i;
+            }
+        }
+        for (Binding binding : boundPanes) {
+            binding.update(indexes, count);
+        }
+    }
+
+    /**
+     * A bound pane, with the node it displays for each cell.
+     */
+    private final class Binding {
+
+        private final GridPane pane;
+        private final Node[] nodes;
+
+        private Binding(GridPane pane, int size) {
+            this.pane = pane;
+            this.nodes = new Node[size];
+        }
+
+        private void update(int[] indexes, int count) {
+            IdentityHashMap<Node, Node> replaced = new IdentityHashMap<>();
+            Set<Node> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<Node> added = new ArrayList<>();
+            for (int k = 0; k < count; k++) {
+                int i = indexes[k];
+                Node oldNode = nodes[i];
+                Node newNode = getCell(i).get();
+                if (oldNode == newNode) {
+                    continue;
+                }
+                nodes[i] = newNode;
+                if (newNode != null) {
+                    GridPane.setConstraints(newNode, columnOf(i), rowOf(i));
+                }
+                if (oldNode == null) {
+                    added.add(newNode);
+                } else if (newNode == null) {
+                    removed.add(oldNode);
+                } else {
+                    replaced.put(oldNode, newNode);
+                }
+            }
+            if (replaced.isEmpty() && removed.isEmpty() && added.isEmpty()) {
+                return;
+            }
+            ObservableList<Node> children = pane.getChildren();
+            if (isMove(replaced, removed, added)) {
+                // a node moved to another cell: it cannot be added before it
+                // is removed from its previous place
+                removed.addAll(replaced.keySet());
+                added.addAll(replaced.values());
+                replaced.clear();
+            }
+            if (!replaced.isEmpty()) {
+                for (int i = 0; i < children.size(); i++) {
+                    Node replacement = replaced.get(children.get(i));
+                    if (replacement != null) {
+                        children.set(i, replacement);
+                    }
+                }
+            }
+            if (!removed.isEmpty()) {
+                children.removeAll(removed);
+            }
+            if (!added.isEmpty()) {
+                children.addAll(added);
+            }
+        }
+
+        private boolean isMove(IdentityHashMap<Node, Node> replaced, Set<Node> removed, List<Node> added) {
+            for (Node node : replaced.values()) {
+                if (replaced.containsKey(node) || removed.contains(node)) {
+                    return true;
+                }
+            }
+            for (Node node : added) {
+                if (replaced.containsKey(node) || removed.contains(node)) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
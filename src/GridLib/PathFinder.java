@@ -0,0 +1,337 @@
+package GridLib;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+/**
+ * A tool used to find the shortest paths between two cells of a grid. The
+ * cells are designated by their index (<code>row * width + column</code>) and
+ * a path is returned as the array of the indexes of its cells, from the start
+ * to the goal.
+ * <p>
+ * A PathFinder allocates its working state once, with arrays as long as the
+ * grid, and reuses it for every search: a search only allocates the returned
+ * path. It is therefore not thread-safe; use one PathFinder per thread, or
+ * {@link #findPaths(int[], int[], ForkJoinPool)} to answer many queries in
+ * parallel.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see AStarFinder
+ * @see JumpPointFinder
+ */
+public abstract class PathFinder {
+
+    static final double SQRT2 = Math.sqrt(2);
+
+    final AbstractGrid<?> grid;
+    final double[] costs;
+    final int[] parents;
+    final int[] seen;
+    final int[] closed;
+    final IndexHeap open;
+    int generation;
+    double lastCost;
+    private PathFinder[] workers;
+
+    PathFinder(AbstractGrid<?> grid) {
+        this.grid = grid;
+        this.costs = new double[grid.size()];
+        this.parents = new int[grid.size()];
+        this.seen = new int[grid.size()];
+        this.closed = new int[grid.size()];
+        this.open = new IndexHeap();
+        this.lastCost = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Find the shortest path between the specified cells.
+     *
+     * @param start the index of the first cell of the path
+     * @param goal the index of the last cell of the path
+     * @return the indexes of the cells of the path from the start to the goal
+     * (both included), or null if the goal cannot be reached
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    public abstract int[] findPath(int start, int goal);
+
+    /**
+     * Create a PathFinder with the same settings as this one, but its own
+     * working state.
+     *
+     * @return a copy of this PathFinder
+     */
+    abstract PathFinder copy();
+
+    /**
+     * Find the shortest path between the specified cells.
+     *
+     * @param startRow the row of the first cell of the path
+     * @param startColumn the column of the first cell of the path
+     * @param goalRow the row of the last cell of the path
+     * @param goalColumn the column of the last cell of the path
+     * @return the indexes of the cells of the path from the start to the goal
+     * (both included), or null if the goal cannot be reached
+     * @throws IndexOutOfBoundsException if a row and/or column are out of
+     * range
+     */
+    public int[] findPath(int startRow, int startColumn, int goalRow, int goalColumn) {
+        grid.checkBounds(startRow, startColumn);
+        grid.checkBounds(goalRow, goalColumn);
+        return findPath(grid.index(startRow, startColumn), grid.index(goalRow, goalColumn));
+    }
+
+    /**
+     * Find the shortest path of each pair of start and goal, in parallel in
+     * the provided pool. Each thread of the pool takes the next query as soon
+     * as it is done with its own, with a working state of its own that is
+     * kept by this PathFinder for the next batches.
+     *
+     * @param starts the index of the first cell of each path
+     * @param goals the index of the last cell of each path
+     * @param pool the pool in which the paths are searched
+     * @return the path of each query, null for the queries whose goal cannot
+     * be reached
+     * @throws IllegalArgumentException if there are not as many starts as
+     * goals
+     * @see #findPath(int, int)
+     */
+    public int[][] findPaths(int[] starts, int[] goals, ForkJoinPool pool) {
+        if (starts.length != goals.length) {
+            throw new IllegalArgumentException("starts and goals must have the same length");
+        }
+        int[][] paths = new int[starts.length][];
+        int n = Math.min(pool.getParallelism(), starts.length);
+        if (workers == null || workers.length < n) {
+            PathFinder[] more = workers == null ? new PathFinder[n] : Arrays.copyOf(workers, n);
+            for (int i = workers == null ? 0 : workers.length; i < n; i++) {
+                more[i] = copy();
+            }
+            workers = more;
+        }
+        AtomicInteger next = new AtomicInteger();
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[n];
+        for (int i = 0; i < n; i++) {
+            PathFinder worker = workers[i];
+            tasks[i] = pool.submit(() -> {
+                for (int q = next.getAndIncrement(); q < starts.length; q = next.getAndIncrement()) {
+                    paths[q] = worker.findPath(starts[q], goals[q]);
+                }
+            });
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return paths;
+    }
+
+    /**
+     * Returns the cost of the last path found by {@link #findPath(int, int)},
+     * or {@link Double#POSITIVE_INFINITY} if the last goal could not be
+     * reached.
+     *
+     * @return the cost of the last path found
+     */
+    public double getLastCost() {
+        return lastCost;
+    }
+
+    /**
+     * Start a new search: every cell becomes unseen and open.
+     *
+     * @return the generation of the new search
+     */
+    final int nextGeneration() {
+        if (++generation == 0) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+        open.clear();
+        return generation;
+    }
+
+    final void checkIndex(int index) {
+        if (index < 0 || index >= costs.length) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+    }
+
+    /**
+     * Returns the cells from the start to the goal by following the parents.
+     */
+    final int[] path(int goal) {
+        int length = 0;
+        for (int i = goal; i >= 0; i = parents[i]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int i = goal; i >= 0; i = parents[i]) {
+            path[--length] = i;
+        }
+        return path;
+    }
+
+    /**
+     * The cost of a move between two neighbour cells.
+     */
+    public interface CostFunction {
+
+        /**
+         * Returns the cost of a move between two neighbour cells.
+         *
+         * @param from the index of the cell the move starts from
+         * @param to the index of the cell the move goes to
+         * @return the positive cost of the move, or
+         * {@link Double#POSITIVE_INFINITY} if the move is forbidden
+         */
+        double cost(int from, int to);
+
+        /**
+         * A cost function that forbids moving to the cells that are not
+         * walkable and whose cost is otherwise the euclidean distance between
+         * the two cells (1 for an adjacent cell, the square root of 2 for a
+         * diagonal-adjacent one). A diagonal move is only allowed if both
+         * cells next to it are walkable, like in {@link JumpPointFinder}.
+         * <p>
+         * The distance goes through the borders that the topology of the grid
+         * wraps around, as it is when this cost function is created. The
+         * cells are considered square: with {@link Neighbourhood#HEX}, whose
+         * moves all have the same length, use a cost function of your own.
+         *
+         * @param grid the grid where the paths are searched
+         * @param walkable a predicate called with the index of a cell
+         * @return a cost function for the specified walkable cells
+         * @throws IllegalArgumentException if the topology of the grid is
+         * neither {@link Topology#BOUNDED} nor a
+         * {@link Topology#wrapping(boolean, boolean) wrapping} one
+         */
+        static CostFunction walkable(AbstractGrid<?> grid, IntPredicate walkable) {
+            Topology.Wrapping topology = wrapping(grid);
+            int height = grid.height();
+            int width = grid.width();
+            return (from, to) -> {
+                if (!walkable.test(to)) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                int fromRow = from / width;
+                int fromColumn = from % width;
+                int dr = topology.rowDelta(fromRow, to / width, height);
+                int dc = topology.columnDelta(fromColumn, to % width, width);
+                if (dr == 0 || dc == 0) {
+                    return Math.abs(dr + dc);
+                }
+                if (Math.abs(dr) == 1 && Math.abs(dc) == 1) {
+                    return walkable.test(topology.resolve(fromRow, fromColumn + dc, height, width))
+                            && walkable.test(topology.resolve(fromRow + dr, fromColumn, height, width))
+                            ? SQRT2 : Double.POSITIVE_INFINITY;
+                }
+                return Math.sqrt(dr * dr + dc * dc);
+            };
+        }
+    }
+
+    /**
+     * An estimation of the cost of the shortest path between a cell and the
+     * goal. To find the shortest paths, the estimation must never be greater
+     * than the real cost and must be consistent: the estimation of a cell must
+     * not be greater than the cost of a move to a neighbour plus the
+     * estimation of that neighbour.
+     * <p>
+     * The stock distances go through the borders that the topology of the
+     * grid wraps around, as it is when the heuristic is created, and throw an
+     * {@link IllegalArgumentException} for the other topologies. They measure
+     * distances between square cells, so they overestimate the paths of
+     * {@link Neighbourhood#HEX}: use {@link #NONE} or a heuristic of your own
+     * with it.
+     */
+    public interface Heuristic {
+
+        /**
+         * A heuristic that always estimates 0, which makes a search a
+         * Dijkstra's search.
+         */
+        Heuristic NONE = (index, goal) -> 0;
+
+        /**
+         * Estimate the cost of the shortest path between a cell and the goal.
+         *
+         * @param index the index of the cell
+         * @param goal the index of the goal
+         * @return the estimated cost
+         */
+        double estimate(int index, int goal);
+
+        /**
+         * The manhattan distance, for paths that only move to adjacent cells
+         * with a cost of 1.
+         *
+         * @param grid the grid where the paths are searched
+         * @return the manhattan distance heuristic
+         */
+        static Heuristic manhattan(AbstractGrid<?> grid) {
+            Topology.Wrapping topology = wrapping(grid);
+            int height = grid.height();
+            int width = grid.width();
+            return (index, goal) -> Math.abs(topology.rowDelta(index / width, goal / width, height))
+                    + Math.abs(topology.columnDelta(index % width, goal % width, width));
+        }
+
+        /**
+         * The octile distance, for paths that also move to diagonal-adjacent
+         * cells with a cost of the square root of 2.
+         *
+         * @param grid the grid where the paths are searched
+         * @return the octile distance heuristic
+         */
+        static Heuristic octile(AbstractGrid<?> grid) {
+            Topology.Wrapping topology = wrapping(grid);
+            int height = grid.height();
+            int width = grid.width();
+            return (index, goal) -> octileDistance(
+                    Math.abs(topology.rowDelta(index / width, goal / width, height)),
+                    Math.abs(topology.columnDelta(index % width, goal % width, width)));
+        }
+
+        /**
+         * The euclidean distance, for paths whose cost of a move is the
+         * distance between the cells.
+         *
+         * @param grid the grid where the paths are searched
+         * @return the euclidean distance heuristic
+         */
+        static Heuristic euclidean(AbstractGrid<?> grid) {
+            Topology.Wrapping topology = wrapping(grid);
+            int height = grid.height();
+            int width = grid.width();
+            return (index, goal) -> {
+                int dr = topology.rowDelta(index / width, goal / width, height);
+                int dc = topology.columnDelta(index % width, goal % width, width);
+                return Math.sqrt(dr * dr + dc * dc);
+            };
+        }
+    }
+
+    /**
+     * Returns the topology of a grid whose distances the stock cost functions
+     * and heuristics can measure.
+     */
+    static Topology.Wrapping wrapping(AbstractGrid<?> grid) {
+        Topology topology = grid.getTopology();
+        if (!(topology instanceof Topology.Wrapping)) {
+            throw new IllegalArgumentException("Unsupported topology: " + topology);
+        }
+        return (Topology.Wrapping) topology;
+    }
+
+    static double octileDistance(int width, int index, int goal) {
+        return octileDistance(Math.abs(index / width - goal / width), Math.abs(index % width - goal % width));
+    }
+
+    private static double octileDistance(int dr, int dc) {
+        return dr < dc ? (SQRT2 - 1) * dr + dc : (SQRT2 - 1) * dc + dr;
+    }
+}
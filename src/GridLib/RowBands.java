@@ -0,0 +1,74 @@
+package GridLib;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A fork/join task that splits the rows of a grid in bands of consecutive
+ * rows and runs a {@link Band} on each of them. A band always contains whole
+ * rows, so the cells it covers are contiguous in a row-major array.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ */
+final class RowBands extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of cells under which a band is not split any further.
+     */
+    static final int THRESHOLD = 1 << 14;
+
+    private final Band band;
+    private final int fromRow;
+    private final int toRow;
+    private final int width;
+
+    private RowBands(Band band, int fromRow, int toRow, int width) {
+        this.band = band;
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+        this.width = width;
+    }
+
+    /**
+     * Run the band on every row of a grid of the specified size in the
+     * provided pool, and wait for all of them to be done.
+     *
+     * @param pool the pool running the bands
+     * @param height the height of the grid
+     * @param width the width of the grid
+     * @param band the work to do on each band of rows
+     */
+    static void run(ForkJoinPool pool, int height, int width, Band band) {
+        if (height > 0) {
+            pool.invoke(new RowBands(band, 0, height, width));
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (toRow - fromRow > 1 && (long) (toRow - fromRow) * width > THRESHOLD) {
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new RowBands(band, fromRow, middle, width),
+                    new RowBands(band, middle, toRow, width));
+        } else {
+            band.run(fromRow, toRow);
+        }
+    }
+
+    /**
+     * The work done on a band of rows.
+     */
+    interface Band {
+
+        /**
+         * Do the work on the specified rows.
+         *
+         * @param fromRow the first row of the band
+         * @param toRow the row after the last row of the band
+         */
+        void run(int fromRow, int toRow);
+    }
+}
@@ -0,0 +1,290 @@
+package GridLib;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+
+/**
+ * A grid modified by a single writer thread and read by any number of reader
+ * threads through immutable snapshots. Taking a {@link Snapshot} is O(1) and
+ * never copies the values: the grid is split in tiles of 64 x 64 cells shared
+ * by the grid and its snapshots, and a tile is only copied when the writer
+ * modifies it for the first time after a snapshot. The directory of the tiles
+ * is shared the same way, so a writer modifying a few cells between two
+ * snapshots copies a few tiles, not the whole grid.
+ * <p>
+ * The writer publishes its snapshots with {@link #snapshot()}, and the readers
+ * get the latest one with {@link #latest()}, without any lock. A snapshot
+ * never changes, so a reader sees all the modifications made before it was
+ * taken and none made after, even if it reads it for a long time. The cells
+ * of this grid and of its snapshots are their values, so the navigation
+ * methods of {@link AbstractGrid} return values.
+ * <p>
+ * The methods modifying this grid, and the ones reading it directly instead of
+ * through a snapshot, must only be called from the writer thread.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @param <E> the class that this grid can contains
+ * @see Grid
+ */
+public class SnapshotGrid<E> extends AbstractGrid<E> {
+
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+
+    private final E initial;
+    private final int tileColumns;
+    private Tile[] tiles;
+    private boolean tilesShared;
+    private int epoch;
+    private long version;
+    private volatile Snapshot<E> latest;
+
+    /**
+     * Construct a SnapshotGrid with the specified height and width and fill
+     * the cells with the provided value. The tiles are only allocated when
+     * they are modified.
+     *
+     * @param initial the initial value of each cell
+     * @param height the height of this grid
+     * @param width the width of this grid
+     */
+    public SnapshotGrid(E initial, int height, int width) {
+        super(height, width);
+        this.initial = initial;
+        this.tileColumns = (width + TILE_MASK) >>> TILE_SHIFT;
+        this.tiles = new Tile[((height + TILE_MASK) >>> TILE_SHIFT) * tileColumns];
+        this.latest = new Snapshot<>(this, tiles, 0);
+        this.tilesShared = true;
+        this.epoch = 1;
+    }
+
+    /**
+     * Construct a SnapshotGrid with the specified height and width and fill
+     * the cells with nulls.
+     *
+     * @param height the height of this grid
+     * @param width the width of this grid
+     */
+    public SnapshotGrid(int height, int width) {
+        this(null, height, width);
+    }
+
+    /**
+     * Construct a SnapshotGrid with the specified height and width and fill
+     * the cells with the provided generator.
+     *
+     * @param height the height of this grid
+     * @param width the width of this grid
+     * @param generator a tool that is use to generate the content of each cell
+     */
+    public SnapshotGrid(int height, int width, Grid.CellValueGenerator<E> generator) {
+        this(null, height, width);
+        regenerateCells(generator);
+    }
+
+    /**
+     * Reset and generate the value of each cell with the provided generator.
+     *
+     * @param generator a tool that is use to generate the content of each cell
+     */
+    public void regenerateCells(Grid.CellValueGenerator<E> generator) {
+        for (int row = 0; row < height(); row++) {
+            for (int column = 0; column < width(); column++) {
+                write(row, column, generator.generate(row, column));
+            }
+        }
+    }
+
+    /**
+     * Put an item in the specified row and column.
+     *
+     * @param item the item to put
+     * @param row the row where the item is put
+     * @param column the column where the item is put
+     * @return true if the provided row and column match the height and width of
+     * this Grid, false otherwise
+     */
+    public boolean put(E item, int row, int column) {
+        if (contains(row, column)) {
+            write(row, column, item);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Put an item at the specified index.
+     *
+     * @param item the item to put
+     * @param index the index where the item is put
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public void put(E item, int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+        write(rowOf(index), columnOf(index), item);
+    }
+
+    /**
+     * Get the item in the specified row and column, as modified by the writer.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return the item of the specified cell
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public E get(int row, int column) {
+        checkBounds(row, column);
+        return read(tiles, tileColumns, initial, row, column);
+    }
+
+    @Override
+    protected E cellAt(int index) {
+        return read(tiles, tileColumns, initial, rowOf(index), columnOf(index));
+    }
+
+    /**
+     * The cells of this grid are its items, which may be null and may be
+     * modified while they are traversed.
+     */
+    @Override
+    protected int cellCharacteristics() {
+        return 0;
+    }
+
+    /**
+     * Publish the current state of this grid as an immutable snapshot. The
+     * following modifications copy the tiles they modify, so they are not
+     * seen by the snapshot.
+     *
+     * @return the new snapshot, also returned by {@link #latest()}, or the
+     * latest one if this grid was not modified since it was taken
+     */
+    public Snapshot<E> snapshot() {
+        Snapshot<E> snapshot = latest;
+        if (!tilesShared) {
+            snapshot = new Snapshot<>(this, tiles, ++version);
+            tilesShared = true;
+            epoch++;
+            latest = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the last snapshot published by {@link #snapshot()}. This method
+     * can be called from any thread.
+     *
+     * @return the latest snapshot
+     */
+    public Snapshot<E> latest() {
+        return latest;
+    }
+
+    private void write(int row, int column, E item) {
+        if (tilesShared) {
+            tiles = tiles.clone();
+            tilesShared = false;
+        }
+        int t = (row >>> TILE_SHIFT) * tileColumns + (column >>> TILE_SHIFT);
+        Tile tile = tiles[t];
+        if (tile == null || tile.epoch != epoch) {
+            tile = new Tile(tile, initial, epoch);
+            tiles[t] = tile;
+        }
+        tile.values[((row & TILE_MASK) << TILE_SHIFT) | (column & TILE_MASK)] = item;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E read(Tile[] tiles, int tileColumns, E initial, int row, int column) {
+        Tile tile = tiles[(row >>> TILE_SHIFT) * tileColumns + (column >>> TILE_SHIFT)];
+        return tile == null ? initial : (E) tile.values[((row & TILE_MASK) << TILE_SHIFT) | (column & TILE_MASK)];
+    }
+
+    /**
+     * A block of 64 x 64 values, with the epoch of the grid in which it was
+     * copied. A tile of the current epoch is only referenced by the grid and
+     * can be modified in place.
+     */
+    private static final class Tile {
+
+        private final Object[] values;
+        private final int epoch;
+
+        private Tile(Tile copied, Object initial, int epoch) {
+            if (copied != null) {
+                this.values = copied.values.clone();
+            } else {
+                this.values = new Object[1 << (2 * TILE_SHIFT)];
+                if (initial != null) {
+                    Arrays.fill(values, initial);
+                }
+            }
+            this.epoch = epoch;
+        }
+    }
+
+    /**
+     * An immutable view of a {@link SnapshotGrid} as it was when the snapshot
+     * was taken. A Snapshot can be read from any thread, with the navigation
+     * methods of {@link AbstractGrid}.
+     *
+     * @param <E> the class that the grid contains
+     */
+    public static final class Snapshot<E> extends AbstractGrid<E> {
+
+        private final Tile[] tiles;
+        private final int tileColumns;
+        private final E initial;
+        private final long version;
+
+        private Snapshot(SnapshotGrid<E> grid, Tile[] tiles, long version) {
+            super(grid.height(), grid.width());
+            this.tiles = tiles;
+            this.tileColumns = grid.tileColumns;
+            this.initial = grid.initial;
+            this.version = version;
+        }
+
+        /**
+         * Returns the number of this snapshot. The snapshots of a grid are
+         * numbered from 0, in the order they were taken.
+         *
+         * @return the number of this snapshot
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Get the item in the specified row and column.
+         *
+         * @param row the specified row
+         * @param column the specified column
+         * @return the item of the specified cell
+         * @throws IndexOutOfBoundsException if the row and/or column are out
+         * of range
+         */
+        public E get(int row, int column) {
+            checkBounds(row, column);
+            return read(tiles, tileColumns, initial, row, column);
+        }
+
+        @Override
+        protected E cellAt(int index) {
+            return read(tiles, tileColumns, initial, rowOf(index), columnOf(index));
+        }
+
+        /**
+         * The cells of a snapshot are its items, which may be null but are
+         * never modified.
+         */
+        @Override
+        protected int cellCharacteristics() {
+            return Spliterator.IMMUTABLE;
+        }
+    }
+}
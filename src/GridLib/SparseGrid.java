@@ -0,0 +1,757 @@
+package GridLib;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * A bidimensional grid storing only its occupied cells, for huge worlds that
+ * are mostly empty. The grid is split in tiles of 64 x 64 cells, and a tile is
+ * only allocated when a value is put in one of its cells, then freed when its
+ * last value is removed. The memory used by a SparseGrid depends on the number
+ * of occupied tiles, not on its height and width, so a grid can have more than
+ * {@link Integer#MAX_VALUE} cells.
+ * <p>
+ * The API follows the one of {@link Grid}, but the cells are light handles
+ * created on demand: two handles on the same cell are equal, and a handle on
+ * an empty cell can be used to put a value in it. An empty cell contains
+ * <code>null</code>, so null values cannot be stored. The occupied cells are
+ * iterated tile by tile with {@link #forEachOccupied(OccupiedCellVisitor)}
+ * and {@link #iterator()}, in no particular order.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @param <E> the class that this grid can contains
+ * @see Grid
+ */
+public class SparseGrid<E> implements Iterable<SparseGrid.Cell<E>> {
+
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final long EMPTY = -1L;
+
+    private final int height;
+    private final int width;
+    private long[] keys;
+    private Tile[] tiles;
+    private int tileCount;
+    private long occupied;
+
+    /**
+     * Construct an empty SparseGrid with the specified height and width.
+     *
+     * @param height the height of this grid
+     * @param width the width of this grid
+     * @throws IllegalArgumentException if the height or the width is negative
+     */
+    public SparseGrid(int height, int width) {
+        if (height < 0 || width < 0) {
+            throw new IllegalArgumentException("Illegal size: " + height + "x" + width);
+        }
+        this.height = height;
+        this.width = width;
+        this.keys = new long[16];
+        this.tiles = new Tile[16];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Returns the height of this grid.
+     *
+     * @return the number of rows
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns the width of this grid.
+     *
+     * @return the number of columns
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Returns the number of cells of this grid, occupied or not.
+     *
+     * @return the height multiplied by the width
+     */
+    public long size() {
+        return (long) height * width;
+    }
+
+    /**
+     * Returns the number of occupied cells.
+     *
+     * @return the number of cells containing a value
+     */
+    public long occupiedCount() {
+        return occupied;
+    }
+
+    /**
+     * Returns the number of allocated tiles.
+     *
+     * @return the number of tiles containing at least one value
+     */
+    public int tileCount() {
+        return tileCount;
+    }
+
+    /**
+     * Returns true if the specified row and column are in this grid.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return true if the cell exists
+     */
+    public boolean contains(int row, int column) {
+        return row >= 0 && column >= 0 && row < height && column < width;
+    }
+
+    private void checkBounds(int row, int column) {
+        if (!contains(row, column)) {
+            throw new IndexOutOfBoundsException("row: " + row + ", column: " + column);
+        }
+    }
+
+    /**
+     * Put an item in the specified row and column. Putting null removes the
+     * item of the cell.
+     *
+     * @param item the item to put
+     * @param row the row where the item is put
+     * @param column the column where the item is put
+     * @return true if the provided row and column match the height and width of
+     * this Grid, false otherwise
+     */
+    public boolean put(E item, int row, int column) {
+        if (!contains(row, column)) {
+            return false;
+        }
+        if (item == null) {
+            remove(row, column);
+        } else {
+            set(row, column, item);
+        }
+        return true;
+    }
+
+    /**
+     * Replace the item in the specified row and column by the provided one.
+     * Does nothing if there is no precedent item
+     *
+     * @param item the item to put
+     * @param row the row where the item is replaced
+     * @param column the column where the item is replaced
+     * @return true if there was a precedent item in the specified emplacement,
+     * false otherwise
+     */
+    public boolean replace(E item, int row, int column) {
+        if (contains(row, column) && value(row, column) != null) {
+            return put(item, row, column);
+        }
+        return false;
+    }
+
+    /**
+     * Remove the item in the specified row and column. The tile of the cell is
+     * freed if it does not contain any other item.
+     *
+     * @param row the row where the item is deleted
+     * @param column the column where the item is deleted
+     * @return true if there was an item to delete in the specified emplacement,
+     * false otherwise
+     */
+    public boolean remove(int row, int column) {
+        if (!contains(row, column)) {
+            return false;
+        }
+        int slot = find(key(row, column));
+        if (slot < 0) {
+            return false;
+        }
+        Tile tile = tiles[slot];
+        int i = offset(row, column);
+        if (tile.values[i] == null) {
+            return false;
+        }
+        tile.values[i] = null;
+        occupied--;
+        if (--tile.count == 0) {
+            delete(slot);
+        }
+        return true;
+    }
+
+    /**
+     * Remove every item of this grid and free all the tiles.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(tiles, null);
+        tileCount = 0;
+        occupied = 0;
+    }
+
+    /**
+     * Get the cell in the specified row and column.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return a handle on the specified cell
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public Cell<E> get(int row, int column) {
+        checkBounds(row, column);
+        return new Cell<>(this, row, column);
+    }
+
+    /**
+     * Get the item in the specified row and column.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return the item of the cell, or null if it is empty
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    @SuppressWarnings("unchecked")
+    public E value(int row, int column) {
+        checkBounds(row, column);
+        int slot = find(key(row, column));
+        return slot < 0 ? null : (E) tiles[slot].values[offset(row, column)];
+    }
+
+    private void set(int row, int column, E item) {
+        long key = key(row, column);
+        int slot = find(key);
+        Tile tile;
+        if (slot < 0) {
+            tile = new Tile();
+            insert(key, tile);
+        } else {
+            tile = tiles[slot];
+        }
+        int i = offset(row, column);
+        if (tile.values[i] == null) {
+            tile.count++;
+            occupied++;
+        }
+        tile.values[i] = item;
+    }
+
+    /**
+     * get the adjacents cells of the specified one.
+     *
+     * @param row the row of the specified cell
+     * @param column the column of the specified cell
+     * @param deleteNulls if set to true, delete the non-existant cells (when
+     * the specified cell is in a border or a corner)
+     *
+     * @return a list containing the adjacents cells in the order defined by the
+     * {@link AbstractGrid#TOP}, {@link AbstractGrid#RIGHT},
+     * {@link AbstractGrid#BOTTOM} and {@link AbstractGrid#LEFT} constants.
+     * Beware that these cosntants become obsoletes if <code>deleteNulls</code>
+     * is true
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public ArrayList<Cell<E>> getAdjacents(int row, int column, boolean deleteNulls) {
+        checkBounds(row, column);
+        ArrayList<Cell<E>> res = new ArrayList<>(4);
+        addOrNull(res, row - 1, column, deleteNulls);
+        addOrNull(res, row, column + 1, deleteNulls);
+        addOrNull(res, row + 1, column, deleteNulls);
+        addOrNull(res, row, column - 1, deleteNulls);
+        return res;
+    }
+
+    /**
+     * get the adjacents cells of the specified one.
+     *
+     * @param cell the specified cell
+     * @param deleteNulls if set to true, delete the non-existant cells
+     * @return a list containing the adjacents cells
+     * @see #getAdjacents(int, int, boolean)
+     */
+    public ArrayList<Cell<E>> getAdjacents(Cell<E> cell, boolean deleteNulls) {
+        return getAdjacents(cell.row, cell.column, deleteNulls);
+    }
+
+    /**
+     * get the diagonal-adjacents cells of the specified one.
+     *
+     * @param row the row of the specified cell
+     * @param column the column of the specified cell
+     * @param deleteNulls if set to true, delete the non-existant cells (when
+     * the specified cell is in a border or a corner)
+     *
+     * @return a list containing the diagonal-adjacents cells in the order
+     * defined by the {@link AbstractGrid#TOP_LEFT},
+     * {@link AbstractGrid#TOP_RIGHT}, {@link AbstractGrid#BOTTOM_RIGHT} and
+     * {@link AbstractGrid#BOTTOM_LEFT} constants. Beware that these cosntants
+     * become obsoletes if <code>deleteNulls</code> is true
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public ArrayList<Cell<E>> getDiagonalsAdjacents(int row, int column, boolean deleteNulls) {
+        checkBounds(row, column);
+        ArrayList<Cell<E>> res = new ArrayList<>(4);
+        addOrNull(res, row - 1, column - 1, deleteNulls);
+        addOrNull(res, row - 1, column + 1, deleteNulls);
+        addOrNull(res, row + 1, column + 1, deleteNulls);
+        addOrNull(res, row + 1, column - 1, deleteNulls);
+        return res;
+    }
+
+    /**
+     * get the diagonal-adjacents cells of the specified one.
+     *
+     * @param cell the specified cell
+     * @param deleteNulls if set to true, delete the non-existant cells
+     * @return a list containing the diagonal-adjacents cells
+     * @see #getDiagonalsAdjacents(int, int, boolean)
+     */
+    public ArrayList<Cell<E>> getDiagonalsAdjacents(Cell<E> cell, boolean deleteNulls) {
+        return getDiagonalsAdjacents(cell.row, cell.column, deleteNulls);
+    }
+
+    private void addOrNull(ArrayList<Cell<E>> res, int row, int column, boolean deleteNulls) {
+        if (contains(row, column)) {
+            res.add(new Cell<>(this, row, column));
+        } else if (!deleteNulls) {
+            res.add(null);
+        }
+    }
+
+    /**
+     * Get a live view of the specified row of cells. The handles are created
+     * when they are read, so a view of a very long row costs nothing.
+     *
+     * @param row the specified row
+     * @return an unmodifiable list of the cells of the specified row from left
+     * to right
+     * @throws IndexOutOfBoundsException if the row is out of range
+     */
+    public List<Cell<E>> rowView(int row) {
+        if (row < 0 || row >= height) {
+            throw new IndexOutOfBoundsException("row: " + row);
+        }
+        return new LineView(row, 0, 0, 1, width);
+    }
+
+    /**
+     * Get a live view of the specified column of cells.
+     *
+     * @param column the specified column
+     * @return an unmodifiable list of the cells of the specified column from
+     * top to bottom
+     * @throws IndexOutOfBoundsException if the column is out of range
+     * @see #rowView(int)
+     */
+    public List<Cell<E>> columnView(int column) {
+        if (column < 0 || column >= width) {
+            throw new IndexOutOfBoundsException("column: " + column);
+        }
+        return new LineView(0, column, 1, 0, height);
+    }
+
+    /**
+     * Get a live view of the descending diagonal containing the specified
+     * cell.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return an unmodifiable list of the cells of the descending diagonal from
+     * the top-left cell to the bottom-right one
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     * @see #rowView(int)
+     */
+    public List<Cell<E>> diagonalDescView(int row, int column) {
+        checkBounds(row, column);
+        int back = Math.min(row, column);
+        int rowStart = row - back;
+        int colStart = column - back;
+        return new LineView(rowStart, colStart, 1, 1, Math.min(height - rowStart, width - colStart));
+    }
+
+    /**
+     * Get a live view of the ascending diagonal containing the specified cell.
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return an unmodifiable list of the cells of the ascending diagonal from
+     * the bottom-left cell to the top-right one
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     * @see #rowView(int)
+     */
+    public List<Cell<E>> diagonalAscView(int row, int column) {
+        checkBounds(row, column);
+        int back = Math.min(height - 1 - row, column);
+        int rowStart = row + back;
+        int colStart = column - back;
+        return new LineView(rowStart, colStart, -1, 1, Math.min(rowStart + 1, width - colStart));
+    }
+
+    /**
+     * Get the specified row of cells.
+     *
+     * @param row the specified row
+     * @return a list containing the cells of the specified row from left to
+     * right
+     * @throws IndexOutOfBoundsException if the row is out of range
+     * @see #rowView(int)
+     */
+    public ArrayList<Cell<E>> getRow(int row) {
+        return new ArrayList<>(rowView(row));
+    }
+
+    /**
+     * Get the specified column of cells.
+     *
+     * @param column the specified column
+     * @return a list containing the cells of the specified column from top to
+     * bottom
+     * @throws IndexOutOfBoundsException if the column is out of range
+     * @see #columnView(int)
+     */
+    public ArrayList<Cell<E>> getColumn(int column) {
+        return new ArrayList<>(columnView(column));
+    }
+
+    /**
+     * Get the specified descending diagonal of cells
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return a list containing the cells of the specified descending diagonal
+     * from the top-left cell to the bottom-right one
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     * @see #diagonalDescView(int, int)
+     */
+    public ArrayList<Cell<E>> getDiagonalDesc(int row, int column) {
+        return new ArrayList<>(diagonalDescView(row, column));
+    }
+
+    /**
+     * Get the specified ascending diagonal of cells
+     *
+     * @param row the specified row
+     * @param column the specified column
+     * @return a list containing the cells of the specified ascending diagonal
+     * from the bottom-left cell to the top-right one
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     * @see #diagonalAscView(int, int)
+     */
+    public ArrayList<Cell<E>> getDiagonalAsc(int row, int column) {
+        return new ArrayList<>(diagonalAscView(row, column));
+    }
+
+    /**
+     * Call the visitor with each occupied cell. Only the allocated tiles are
+     * visited, tile after tile, and the cells of a tile row after row. The
+     * grid must not be modified during the visit.
+     *
+     * @param visitor the visitor called with each occupied cell
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachOccupied(OccupiedCellVisitor<? super E> visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == EMPTY) {
+                continue;
+            }
+            int rowBase = (int) (keys[slot] >>> 32) << TILE_SHIFT;
+            int columnBase = (int) keys[slot] << TILE_SHIFT;
+            Object[] values = tiles[slot].values;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    visitor.visit(rowBase + (i >>> TILE_SHIFT), columnBase + (i & TILE_MASK), (E) values[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over the occupied cells, in the order of
+     * {@link #forEachOccupied(OccupiedCellVisitor)}. The grid must not be
+     * modified during the iteration.
+     *
+     * @return an iterator over the occupied cells
+     */
+    @Override
+    public Iterator<Cell<E>> iterator() {
+        return new Iterator<Cell<E>>() {
+            private int slot = -1;
+            private int i = TILE_SIZE * TILE_SIZE;
+
+            {
+                advance();
+            }
+
+            private void advance() {
+                while (true) {
+                    if (++i >= TILE_SIZE * TILE_SIZE) {
+                        do {
+                            if (++slot >= keys.length) {
+                                return;
+                            }
+                        } while (keys[slot] == EMPTY);
+                        i = 0;
+                    }
+                    if (tiles[slot].values[i] != null) {
+                        return;
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < keys.length;
+            }
+
+            @Override
+            public Cell<E> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int row = ((int) (keys[slot] >>> 32) << TILE_SHIFT) + (i >>> TILE_SHIFT);
+                int column = ((int) keys[slot] << TILE_SHIFT) + (i & TILE_MASK);
+                advance();
+                return new Cell<>(SparseGrid.this, row, column);
+            }
+        };
+    }
+
+    private static long key(int row, int column) {
+        return ((long) (row >>> TILE_SHIFT) << 32) | (column >>> TILE_SHIFT);
+    }
+
+    private static int offset(int row, int column) {
+        return ((row & TILE_MASK) << TILE_SHIFT) | (column & TILE_MASK);
+    }
+
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * Returns the slot of the specified tile, or -1 if it is not allocated.
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            if (keys[slot] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private void insert(long key, Tile tile) {
+        if (2 * (tileCount + 1) > keys.length) {
+            long[] oldKeys = keys;
+            Tile[] oldTiles = tiles;
+            keys = new long[oldKeys.length * 2];
+            tiles = new Tile[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY) {
+                    place(oldKeys[slot], oldTiles[slot]);
+                }
+            }
+        }
+        place(key, tile);
+        tileCount++;
+    }
+
+    private void place(long key, Tile tile) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        tiles[slot] = tile;
+    }
+
+    /**
+     * Free the tile of the specified slot, moving back the following tiles of
+     * its probe sequence so that no tombstone is needed.
+     */
+    private void delete(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            // move the tile if its home is not between the hole and its slot
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                tiles[hole] = tiles[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        tiles[hole] = null;
+        tileCount--;
+    }
+
+    /**
+     * A block of 64 x 64 cells, with the number of occupied ones.
+     */
+    private static final class Tile {
+
+        private final Object[] values = new Object[TILE_SIZE * TILE_SIZE];
+        private int count;
+    }
+
+    /**
+     * An unmodifiable list of the cells of a line of this grid.
+     */
+    private final class LineView extends AbstractList<Cell<E>> implements RandomAccess {
+
+        private final int row;
+        private final int column;
+        private final int rowStep;
+        private final int columnStep;
+        private final int size;
+
+        private LineView(int row, int column, int rowStep, int columnStep, int size) {
+            this.row = row;
+            this.column = column;
+            this.rowStep = rowStep;
+            this.columnStep = columnStep;
+            this.size = size;
+        }
+
+        @Override
+        public Cell<E> get(int i) {
+            if (i < 0 || i >= size) {
+                throw new IndexOutOfBoundsException("index: " + i);
+            }
+            return new Cell<>(SparseGrid.this, row + i * rowStep, column + i * columnStep);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A handle on a cell of a SparseGrid. The handle does not hold the value
+     * of the cell: it reads and writes it in the grid.
+     *
+     * @param <E> the class that this Cell can contains
+     */
+    public static final class Cell<E> {
+
+        private final SparseGrid<E> grid;
+        private final int row;
+        private final int column;
+
+        private Cell(SparseGrid<E> grid, int row, int column) {
+            this.grid = grid;
+            this.row = row;
+            this.column = column;
+        }
+
+        /**
+         * Get the row number of this Cell.
+         *
+         * @return the row number of this Cell
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * Get the column number of this Cell.
+         *
+         * @return the column number of this Cell
+         */
+        public int getColumn() {
+            return column;
+        }
+
+        /**
+         * Get the value of this Cell.
+         *
+         * @return the value of this Cell, or null if it is empty
+         */
+        public E get() {
+            return grid.value(row, column);
+        }
+
+        /**
+         * Set the item in this Cell. Setting null makes the cell empty.
+         *
+         * @param value the new value
+         */
+        public void set(E value) {
+            grid.put(value, row, column);
+        }
+
+        /**
+         * Returns true if this Cell is empty.
+         *
+         * @return true if the value of this Cell is null
+         */
+        public boolean isEmpty() {
+            return get() == null;
+        }
+
+        /**
+         * A convenience method that make this Cell empty.
+         */
+        public void clear() {
+            grid.remove(row, column);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Cell)) {
+                return false;
+            }
+            Cell<?> other = (Cell<?>) obj;
+            return other.grid == grid && other.row == row && other.column == column;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * row + column;
+        }
+    }
+
+    /**
+     * A visitor of the occupied cells of a SparseGrid.
+     *
+     * @param <E> the class that the grid contains
+     */
+    public interface OccupiedCellVisitor<E> {
+
+        /**
+         * Called with an occupied cell.
+         *
+         * @param row the row of the cell
+         * @param column the column of the cell
+         * @param value the value of the cell, never null
+         */
+        void visit(int row, int column, E value);
+    }
+}
@@ -0,0 +1,449 @@
+package GridLib;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A stencil operator computing each cell of a {@link DoubleGrid} from the
+ * cells around the same cell in another one: blurs, erosions and dilations,
+ * influence maps, gradients etc. A Stencil is either a kernel of weights,
+ * whose weighted sum is computed for each cell, or a {@link WindowFunction}
+ * reading the cells around each cell through a {@link Window}. The cells
+ * outside of the grid are given by a {@link Border} mode.
+ * <p>
+ * The grid is computed by tiles of rows and columns, so that the rows read by
+ * a tile stay in the cache, and by bands of rows in parallel when a pool is
+ * provided. Far enough from the borders, the weights are applied one after
+ * the other to whole segments of a row, in simple loops over arrays that the
+ * JIT compiler can vectorize. The cells near the borders sum the same
+ * products in the same order, so every cell gets exactly the same result
+ * whatever the path that computed it.
+ * <p>
+ * A Stencil has no state: the same instance can be applied by several threads
+ * at once.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see DoubleGrid
+ */
+public final class Stencil {
+
+    private static final int TILE_ROWS = 32;
+    private static final int TILE_COLUMNS = 512;
+
+    private final int rowRadius;
+    private final int columnRadius;
+    private final int[] tapRows;
+    private final int[] tapColumns;
+    private final double[] weights;
+    private final WindowFunction function;
+    private final Border border;
+
+    private Stencil(int rowRadius, int columnRadius, int[] tapRows, int[] tapColumns, double[] weights,
+            WindowFunction function, Border border) {
+        if (border == null) {
+            throw new NullPointerException("border");
+        }
+        this.rowRadius = rowRadius;
+        this.columnRadius = columnRadius;
+        this.tapRows = tapRows;
+        this.tapColumns = tapColumns;
+        this.weights = weights;
+        this.function = function;
+        this.border = border;
+    }
+
+    /**
+     * Returns a Stencil computing the weighted sum of the cells around each
+     * cell. The kernel has an odd number of rows and columns, and its center
+     * is applied to the computed cell.
+     *
+     * @param kernel the weights, row after row
+     * @param border the values of the cells outside of the grid
+     * @return a weighted Stencil
+     * @throws IllegalArgumentException if the kernel is empty, not
+     * rectangular, or has an even number of rows or columns
+     */
+    public static Stencil weights(double[][] kernel, Border border) {
+        int rows = kernel.length;
+        int columns = rows == 0 ? 0 : kernel[0].length;
+        if (rows % 2 == 0 || columns % 2 == 0) {
+            throw new IllegalArgumentException("The kernel must have an odd number of rows and columns");
+        }
+        int taps = 0;
+        for (double[] row : kernel) {
+            if (row.length != columns) {
+                throw new IllegalArgumentException("The kernel must be rectangular");
+            }
+            for (double weight : row) {
+                if (weight != 0) {
+                    taps++;
+                }
+            }
+        }
+        int[] tapRows = new int[taps];
+        int[] tapColumns = new int[taps];
+        double[] weights = new double[taps];
+        int k = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (kernel[r][c] != 0) {
+                    tapRows[k] = r - rows / 2;
+                    tapColumns[k] = c - columns / 2;
+                    weights[k++] = kernel[r][c];
+                }
+            }
+        }
+        return new Stencil(rows / 2, columns / 2, tapRows, tapColumns, weights, null, border);
+    }
+
+    /**
+     * Returns a Stencil computing each cell with a function of the cells
+     * around it.
+     *
+     * @param radius the largest distance, in rows or columns, between a cell
+     * and the cells read by the function
+     * @param function the function computing each cell
+     * @param border the values of the cells outside of the grid
+     * @return a Stencil applying the function
+     * @throws IllegalArgumentException if the radius is negative
+     */
+    public static Stencil of(int radius, WindowFunction function, Border border) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Illegal radius: " + radius);
+        }
+        return new Stencil(radius, radius, null, null, null, function, border);
+    }
+
+    /**
+     * Returns a Stencil computing the mean of the square of cells of the
+     * specified radius around each cell.
+     *
+     * @param radius the radius of the square
+     * @param border the values of the cells outside of the grid
+     * @return a box blur
+     */
+    public static Stencil box(int radius, Border border) {
+        int size = 2 * radius + 1;
+        double[][] kernel = new double[size][size];
+        for (double[] row : kernel) {
+            Arrays.fill(row, 1.0 / (size * size));
+        }
+        return weights(kernel, border);
+    }
+
+    /**
+     * Returns a Stencil computing a gaussian blur.
+     *
+     * @param radius the radius of the kernel
+     * @param sigma the standard deviation of the gaussian
+     * @param border the values of the cells outside of the grid
+     * @return a gaussian blur
+     */
+    public static Stencil gaussian(int radius, double sigma, Border border) {
+        int size = 2 * radius + 1;
+        double[][] kernel = new double[size][size];
+        double sum = 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int dr = r - radius;
+                int dc = c - radius;
+                kernel[r][c] = Math.exp(-(dr * dr + dc * dc) / (2 * sigma * sigma));
+                sum += kernel[r][c];
+            }
+        }
+        for (double[] row : kernel) {
+            for (int c = 0; c < size; c++) {
+                row[c] /= sum;
+            }
+        }
+        return weights(kernel, border);
+    }
+
+    /**
+     * Returns a Stencil computing the discrete laplacian of each cell with its
+     * four adjacent cells.
+     *
+     * @param border the values of the cells outside of the grid
+     * @return a laplacian operator
+     */
+    public static Stencil laplacian(Border border) {
+        return weights(new double[][]{{0, 1, 0}, {1, -4, 1}, {0, 1, 0}}, border);
+    }
+
+    /**
+     * Returns a Stencil computing the largest value of the square of cells of
+     * the specified radius around each cell, which is a dilation.
+     *
+     * @param radius the radius of the square
+     * @param border the values of the cells outside of the grid
+     * @return a dilation
+     */
+    public static Stencil max(int radius, Border border) {
+        return of(radius, window -> {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int dr = -radius; dr <= radius; dr++) {
+                for (int dc = -radius; dc <= radius; dc++) {
+                    max = Math.max(max, window.get(dr, dc));
+                }
+            }
+            return max;
+        }, border);
+    }
+
+    /**
+     * Returns a Stencil computing the smallest value of the square of cells of
+     * the specified radius around each cell, which is an erosion.
+     *
+     * @param radius the radius of the square
+     * @param border the values of the cells outside of the grid
+     * @return an erosion
+     */
+    public static Stencil min(int radius, Border border) {
+        return of(radius, window -> {
+            double min = Double.POSITIVE_INFINITY;
+            for (int dr = -radius; dr <= radius; dr++) {
+                for (int dc = -radius; dc <= radius; dc++) {
+                    min = Math.min(min, window.get(dr, dc));
+                }
+            }
+            return min;
+        }, border);
+    }
+
+    /**
+     * Returns the border mode of this Stencil.
+     *
+     * @return the values of the cells outside of the grid
+     */
+    public Border border() {
+        return border;
+    }
+
+    /**
+     * Apply this Stencil to a grid in the current thread.
+     *
+     * @param source the grid to read
+     * @return a new grid containing the result
+     */
+    public DoubleGrid apply(DoubleGrid source) {
+        DoubleGrid target = new DoubleGrid(source.height(), source.width());
+        apply(source, target, null);
+        return target;
+    }
+
+    /**
+     * Apply this Stencil to a grid, writing the result in another one.
+     *
+     * @param source the grid to read
+     * @param target the grid to write, of the same size
+     * @param pool the pool in which the bands of rows are computed, or null to
+     * compute them in the current thread
+     * @throws IllegalArgumentException if the grids are the same or have not
+     * the same size
+     */
+    public void apply(DoubleGrid source, DoubleGrid target, ForkJoinPool pool) {
+        if (source == target) {
+            throw new IllegalArgumentException("The source and the target must be distinct grids");
+        }
+        if (source.height() != target.height() || source.width() != target.width()) {
+            throw new IllegalArgumentException("Grids of different sizes: " + source.height() + "x"
+                    + source.width() + " and " + target.height() + "x" + target.width());
+        }
+        if (pool == null) {
+            new Band(source, target).run(0, source.height());
+        } else {
+            RowBands.run(pool, source.height(), source.width(),
+                    (fromRow, toRow) -> new Band(source, target).run(fromRow, toRow));
+        }
+    }
+
+    /**
+     * The computation of a band of rows, with its own buffers.
+     */
+    private final class Band implements Window {
+
+        private final double[] src;
+        private final double[] dst;
+        private final int height;
+        private final int width;
+        private final double[] sums;
+        private int row;
+        private int column;
+        private boolean inside;
+
+        private Band(DoubleGrid source, DoubleGrid target) {
+            this.src = source.values;
+            this.dst = target.values;
+            this.height = source.height();
+            this.width = source.width();
+            this.sums = weights == null ? null : new double[TILE_COLUMNS];
+        }
+
+        private void run(int fromRow, int toRow) {
+            for (int tileRow = fromRow; tileRow < toRow; tileRow += TILE_ROWS) {
+                int tileEnd = Math.min(toRow, tileRow + TILE_ROWS);
+                for (int tileColumn = 0; tileColumn < width; tileColumn += TILE_COLUMNS) {
+                    int columnEnd = Math.min(width, tileColumn + TILE_COLUMNS);
+                    for (int r = tileRow; r < tileEnd; r++) {
+                        if (weights != null) {
+                            weightedRow(r, tileColumn, columnEnd);
+                        } else {
+                            functionRow(r, tileColumn, columnEnd);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void weightedRow(int r, int from, int to) {
+            int interiorFrom = from;
+            int interiorTo = from;
+            if (r >= rowRadius && r < height - rowRadius) {
+                interiorFrom = Math.max(from, columnRadius);
+                interiorTo = Math.max(interiorFrom, Math.min(to, width - columnRadius));
+            }
+            for (int c = from; c < interiorFrom; c++) {
+                dst[r * width + c] = weightedCell(r, c);
+            }
+            int length = interiorTo - interiorFrom;
+            if (length > 0) {
+                int base = r * width + interiorFrom;
+                Arrays.fill(sums, 0, length, 0.0);
+                for (int k = 0; k < weights.length; k++) {
+                    double weight = weights[k];
+                    int offset = base + tapRows[k] * width + tapColumns[k];
+                    for (int j = 0; j < length; j++) {
+                        sums[j] += weight * src[offset + j];
+                    }
+                }
+                System.arraycopy(sums, 0, dst, base, length);
+            }
+            for (int c = interiorTo; c < to; c++) {
+                dst[r * width + c] = weightedCell(r, c);
+            }
+        }
+
+        private double weightedCell(int r, int c) {
+            double sum = 0.0;
+            for (int k = 0; k < weights.length; k++) {
+                sum += weights[k] * sample(r + tapRows[k], c + tapColumns[k]);
+            }
+            return sum;
+        }
+
+        private void functionRow(int r, int from, int to) {
+            boolean rowInside = r >= rowRadius && r < height - rowRadius;
+            row = r;
+            for (int c = from; c < to; c++) {
+                column = c;
+                inside = rowInside && c >= columnRadius && c < width - columnRadius;
+                dst[r * width + c] = function.apply(this);
+            }
+        }
+
+        private double sample(int r, int c) {
+            if (r < 0 || c < 0 || r >= height || c >= width) {
+                switch (border) {
+                    case CLAMP:
+                        r = Math.max(0, Math.min(height - 1, r));
+                        c = Math.max(0, Math.min(width - 1, c));
+                        break;
+                    case WRAP:
+                        r = Math.floorMod(r, height);
+                        c = Math.floorMod(c, width);
+                        break;
+                    default:
+                        return 0;
+                }
+            }
+            return src[r * width + c];
+        }
+
+        @Override
+        public double get(int rowOffset, int columnOffset) {
+            if (inside && Math.abs(rowOffset) <= rowRadius && Math.abs(columnOffset) <= columnRadius) {
+                return src[(row + rowOffset) * width + column + columnOffset];
+            }
+            return sample(row + rowOffset, column + columnOffset);
+        }
+
+        @Override
+        public int row() {
+            return row;
+        }
+
+        @Override
+        public int column() {
+            return column;
+        }
+    }
+
+    /**
+     * The values of the cells outside of the grid.
+     */
+    public enum Border {
+
+        /**
+         * A cell outside of the grid has the value of the closest cell of the
+         * grid.
+         */
+        CLAMP,
+        /**
+         * The grid is repeated: a cell outside of the grid has the value of
+         * the cell at the same position in the opposite side.
+         */
+        WRAP,
+        /**
+         * A cell outside of the grid has the value 0.
+         */
+        ZERO
+    }
+
+    /**
+     * The cells around the cell being computed. A Window is reused for every
+     * cell, so it must not be kept by the function.
+     */
+    public interface Window {
+
+        /**
+         * Returns the value of a cell relative to the computed one.
+         *
+         * @param rowOffset the offset of the row of the cell
+         * @param columnOffset the offset of the column of the cell
+         * @return the value of the cell, given by the border mode if it is
+         * outside of the grid
+         */
+        double get(int rowOffset, int columnOffset);
+
+        /**
+         * Returns the row of the computed cell.
+         *
+         * @return the row of the computed cell
+         */
+        int row();
+
+        /**
+         * Returns the column of the computed cell.
+         *
+         * @return the column of the computed cell
+         */
+        int column();
+    }
+
+    /**
+     * A function computing a cell from the cells around it. When the grid is
+     * computed in parallel, the function is called from several threads at
+     * once.
+     */
+    public interface WindowFunction {
+
+        /**
+         * Compute the value of a cell.
+         *
+         * @param window the cells around the computed cell
+         * @return the value of the cell
+         */
+        double apply(Window window);
+    }
+}
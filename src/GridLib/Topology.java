@@ -0,0 +1,126 @@
+package GridLib;
+
+/**
+ * The shape of the space of a grid: what is beyond its borders. A Topology
+ * maps a row and a column that may be outside of the grid to the cell they
+ * designate, if there is one. The stock {@link #BOUNDED} topology has nothing
+ * beyond the borders, while the {@link #TORUS} one wraps the rows and the
+ * columns around, so that a cell on the right border is next to the cell on
+ * the left border of the same row.
+ * <p>
+ * The topology of a grid is used by its neighbourhood methods, like
+ * {@link AbstractGrid#neighbours(int, Neighbourhood, int[], boolean)} and
+ * {@link AbstractGrid#getAdjacents(int, int, boolean)}, and combines with any
+ * {@link Neighbourhood}, including {@link Neighbourhood#HEX} for hexagonal
+ * maps. The neighbours of the cells near the borders are resolved once, when
+ * a grid first uses a neighbourhood, and stored in a table, so a custom
+ * topology can be as slow as needed. A hexagonal map wrapping its rows must
+ * have an even height to keep the parity of the rows.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @see AbstractGrid#setTopology(Topology)
+ */
+public abstract class Topology {
+
+    /**
+     * A grid without anything beyond its borders: the default.
+     */
+    public static final Topology BOUNDED = new Wrapping(false, false);
+
+    /**
+     * A grid whose rows and columns wrap around.
+     */
+    public static final Topology TORUS = new Wrapping(true, true);
+
+    /**
+     * Construct a Topology.
+     */
+    protected Topology() {
+    }
+
+    /**
+     * Returns a Topology wrapping the rows and/or the columns around. Wrapping
+     * only the columns gives a cylinder, like the map of a planet.
+     *
+     * @param rows true if the top row is next to the bottom one
+     * @param columns true if the left column is next to the right one
+     * @return the wrapping topology
+     */
+    public static Topology wrapping(boolean rows, boolean columns) {
+        if (rows) {
+            return columns ? TORUS : new Wrapping(true, false);
+        }
+        return columns ? new Wrapping(false, true) : BOUNDED;
+    }
+
+    /**
+     * Returns the index of the cell designated by a row and a column, which
+     * may be outside of the grid. A row and a column inside of the grid must
+     * designate their own cell.
+     *
+     * @param row the row, possibly outside of the grid
+     * @param column the column, possibly outside of the grid
+     * @param height the height of the grid
+     * @param width the width of the grid
+     * @return the index of the designated cell, or {@link AbstractGrid#NONE}
+     * if there is none
+     */
+    public abstract int resolve(int row, int column, int height, int width);
+
+    /**
+     * A topology wrapping the rows and/or the columns around.
+     */
+    static final class Wrapping extends Topology {
+
+        private final boolean rows;
+        private final boolean columns;
+
+        private Wrapping(boolean rows, boolean columns) {
+            this.rows = rows;
+            this.columns = columns;
+        }
+
+        @Override
+        public int resolve(int row, int column, int height, int width) {
+            if (rows && height > 0) {
+                row = Math.floorMod(row, height);
+            }
+            if (columns && width > 0) {
+                column = Math.floorMod(column, width);
+            }
+            if (row < 0 || column < 0 || row >= height || column >= width) {
+                return AbstractGrid.NONE;
+            }
+            return row * width + column;
+        }
+
+        /**
+         * Returns the shortest difference between two rows, going through
+         * the top and bottom borders if the rows wrap around.
+         */
+        int rowDelta(int from, int to, int height) {
+            return delta(to - from, height, rows);
+        }
+
+        /**
+         * Returns the shortest difference between two columns, going through
+         * the left and right borders if the columns wrap around.
+         */
+        int columnDelta(int from, int to, int width) {
+            return delta(to - from, width, columns);
+        }
+
+        private static int delta(int delta, int length, boolean wraps) {
+            if (wraps && 2 * Math.abs(delta) > length) {
+                return delta > 0 ? delta - length : delta + length;
+            }
+            return delta;
+        }
+
+        @Override
+        public String toString() {
+            return rows ? columns ? "TORUS" : "WRAPPING_ROWS" : columns ? "WRAPPING_COLUMNS" : "BOUNDED";
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package GridLib;
+
+import GridLib.Grid.Cell;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * An inverted index of a {@link Grid}, from the key of the value of each cell
+ * to the cells holding it: "all the cells containing this unit" or "all the
+ * cells of this terrain". The key of a cell is extracted from its value by the
+ * function provided when the index is created, and the empty cells, like the
+ * cells whose key is null, are not indexed.
+ * <p>
+ * The cells of a key are found in O(1), and the index is updated by a
+ * {@link Grid.GridListener} in O(1) for each modified cell. The cells of a
+ * rare key are stored as an array of indexes; once a key is held by more than
+ * one cell out of 32, its cells are stored as a {@link FlagSet} of one bit per
+ * cell of the grid instead, which keeps small the index of a few keys each
+ * covering a large part of the grid, like an enum.
+ * <p>
+ * The key of a value must stay the same as long as the value is in the grid.
+ * Like the grid, the index is not thread-safe.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @param <E> the class that the indexed grid contains
+ * @param <K> the class of the keys
+ * @see Grid#indexValues(Function)
+ */
+public final class ValueIndex<E, K> {
+
+    private final Grid<E> grid;
+    private final Function<? super E, ? extends K> keyExtractor;
+    private final HashMap<K, Postings> postings;
+    private final int[] slots;
+    private final int denseSize;
+    private final int sparseSize;
+    private Runnable detach;
+
+    ValueIndex(Grid<E> grid, Function<? super E, ? extends K> keyExtractor) {
+        this.grid = grid;
+        this.keyExtractor = keyExtractor;
+        this.postings = new HashMap<>();
+        this.slots = new int[grid.size()];
+        this.denseSize = Math.max(64, grid.size() >>> 5);
+        this.sparseSize = denseSize / 2;
+        for (int i = 0; i < grid.size(); i++) {
+            add(keyOf(grid.getCell(i).get()), i);
+        }
+    }
+
+    void onDispose(Runnable detach) {
+        this.detach = detach;
+    }
+
+    /**
+     * Move the modified cells from the postings of their old keys to the ones
+     * of their new keys.
+     */
+    void changed(ChangeSet<E> changes) {
+        for (int i = 0; i < changes.size(); i++) {
+            K oldKey = keyOf(changes.oldValue(i));
+            K newKey = keyOf(changes.newValue(i));
+            if (!Objects.equals(oldKey, newKey)) {
+                remove(oldKey, changes.index(i));
+                add(newKey, changes.index(i));
+            }
+        }
+    }
+
+    private K keyOf(E value) {
+        return value == null ? null : keyExtractor.apply(value);
+    }
+
+    private void add(K key, int index) {
+        if (key != null) {
+            postings.computeIfAbsent(key, k -> new Postings()).add(index);
+        }
+    }
+
+    private void remove(K key, int index) {
+        if (key != null) {
+            Postings cells = postings.get(key);
+            if (cells != null && cells.remove(index) == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the keys held by at least one cell.
+     *
+     * @return an unmodifiable view of the indexed keys
+     */
+    public Set<K> keys() {
+        return Collections.unmodifiableSet(postings.keySet());
+    }
+
+    /**
+     * Returns the number of cells holding a key.
+     *
+     * @param key the key to look for
+     * @return the number of cells whose value has this key
+     */
+    public int count(K key) {
+        Postings cells = postings.get(key);
+        return cells == null ? 0 : cells.size;
+    }
+
+    /**
+     * Returns true if the specified cell holds a key.
+     *
+     * @param key the key to look for
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return true if the value of the cell has this key
+     * @throws IndexOutOfBoundsException if the row and/or column are out of
+     * range
+     */
+    public boolean contains(K key, int row, int column) {
+        grid.checkBounds(row, column);
+        Postings cells = postings.get(key);
+        return cells != null && cells.contains(grid.index(row, column));
+    }
+
+    /**
+     * Perform an action for the index of each cell holding a key, in no
+     * particular order. The grid must not be modified by the action.
+     *
+     * @param key the key to look for
+     * @param action the action to perform with the index of each cell
+     */
+    public void forEach(K key, IntConsumer action) {
+        Postings cells = postings.get(key);
+        if (cells != null) {
+            cells.forEach(action);
+        }
+    }
+
+    /**
+     * Returns the indexes of the cells holding a key.
+     *
+     * @param key the key to look for
+     * @return the indexes of the cells whose value has this key, in
+     * ascending order
+     */
+    public int[] indexes(K key) {
+        Postings cells = postings.get(key);
+        if (cells == null) {
+            return new int[0];
+        }
+        int[] indexes = new int[cells.size];
+        int[] n = {0};
+        cells.forEach(i -> indexes[n[0]++] = i);
+        if (cells.flags == null) {
+            Arrays.sort(indexes);
+        }
+        return indexes;
+    }
+
+    /**
+     * Returns the cells holding a key.
+     *
+     * @param key the key to look for
+     * @return the cells whose value has this key, row after row
+     */
+    public ArrayList<Cell<E>> cells(K key) {
+        int[] indexes = indexes(key);
+        ArrayList<Cell<E>> cells = new ArrayList<>(indexes.length);
+        for (int i : indexes) {
+            cells.add(grid.getCell(i));
+        }
+        return cells;
+    }
+
+    /**
+     * Stop updating this index. Its lookups are not valid anymore once the
+     * grid is modified.
+     */
+    public void dispose() {
+        if (detach != null) {
+            detach.run();
+            detach = null;
+        }
+    }
+
+    /**
+     * The cells holding a key: an array of indexes, in which the slot of each
+     * cell is stored in the slots of the index, or a set of flags.
+     */
+    private final class Postings {
+
+        private int[] indexes = new int[4];
+        private FlagSet flags;
+        private int size;
+
+        private void add(int index) {
+            if (flags == null && size == denseSize) {
+                flags = FlagSet.create(slots.length);
+                for (int k = 0; k < size; k++) {
+                    flags.set(indexes[k]);
+                }
+                indexes = null;
+            }
+            if (flags != null) {
+                flags.set(index);
+            } else {
+                if (size == indexes.length) {
+                    indexes = Arrays.copyOf(indexes, Math.min(denseSize, size * 2));
+                }
+                slots[index] = size;
+                indexes[size] = index;
+            }
+            size++;
+        }
+
+        /**
+         * Returns the number of cells left.
+         */
+        private int remove(int index) {
+            size--;
+            if (flags != null) {
+                flags.clear(index);
+                if (size <= sparseSize) {
+                    indexes = new int[Math.max(4, size * 2)];
+                    int[] n = {0};
+                    flags.forEach(i -> {
+                        slots[i] = n[0];
+                        indexes[n[0]++] = i;
+                    });
+                    flags = null;
+                }
+            } else {
+                int slot = slots[index];
+                int last = indexes[size];
+                indexes[slot] = last;
+                slots[last] = slot;
+                if (size > 4 && size < indexes.length / 4) {
+                    indexes = Arrays.copyOf(indexes, indexes.length / 2);
+                }
+            }
+            return size;
+        }
+
+        private boolean contains(int index) {
+            if (flags != null) {
+                return flags.get(index);
+            }
+            int slot = slots[index];
+            return slot < size && indexes[slot] == index;
+        }
+
+        private void forEach(IntConsumer action) {
+            if (flags != null) {
+                flags.forEach(action);
+            } else {
+                for (int k = 0; k < size; k++) {
+                    action.accept(indexes[k]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package GridLib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.application.Platform;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.scene.Node;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.shape.Rectangle;
+
+/**
+ * A {@link javafx.scene.layout.Region} displaying a {@link Grid} without a
+ * {@link javafx.scene.Node} for each of its cells. The values stay in the
+ * grid, and the view only creates the nodes needed to fill its viewport with a
+ * {@link CellRenderer}. When the view is scrolled, zoomed or resized, the same
+ * nodes are reused for the cells that became visible, so the size of the scene
+ * graph depends on the size of the view, not on the size of the grid. The
+ * nodes left over after zooming out are kept for a while, and released once
+ * there are more than twice as many as the visible cells.
+ * <p>
+ * The view is scrolled with the mouse wheel, and zoomed around the mouse
+ * pointer when the control key is down. The scroll offsets and the zoom are
+ * also properties that can be bound to other controls. The modifications of the
+ * visible cells are displayed at the next pulse.
+ *
+ * @author Jordan Vésy
+ * @since 1.1
+ * @param <E> the class that the grid contains
+ * @see NodeGrid#bind(javafx.scene.layout.GridPane)
+ */
+public class VirtualGridView<E> extends Region {
+
+    private final Grid<E> grid;
+    private final CellRenderer<E> renderer;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final Grid.GridListener<E> listener;
+    private final AtomicBoolean layoutScheduled = new AtomicBoolean();
+    private final ArrayList<Node> pool = new ArrayList<>();
+    private final Rectangle clip = new Rectangle();
+    private final DoubleProperty scrollX = new SimpleDoubleProperty(this, "scrollX", 0);
+    private final DoubleProperty scrollY = new SimpleDoubleProperty(this, "scrollY", 0);
+    private final DoubleProperty zoom = new SimpleDoubleProperty(this, "zoom", 1);
+    private double minZoom = 0.1;
+    private double maxZoom = 10;
+    private int usedNodes;
+    private volatile int firstRow;
+    private volatile int firstColumn;
+    private volatile int lastRow = -1;
+    private volatile int lastColumn = -1;
+
+    /**
+     * Construct a VirtualGridView displaying the specified grid.
+     *
+     * @param grid the grid to display
+     * @param renderer the tool creating and updating the nodes of the cells
+     * @param cellWidth the width of a cell when the zoom is 1
+     * @param cellHeight the height of a cell when the zoom is 1
+     * @throws IllegalArgumentException if a size of a cell is not positive
+     */
+    public VirtualGridView(Grid<E> grid, CellRenderer<E> renderer, double cellWidth, double cellHeight) {
+        if (!(cellWidth > 0) || !(cellHeight > 0)) {
+            throw new IllegalArgumentException("Illegal cell size: " + cellWidth + "x" + cellHeight);
+        }
+        this.grid = grid;
+        this.renderer = renderer;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.listener = this::changed;
+        grid.addGridListener(listener);
+        scrollX.addListener(o -> requestLayout());
+        scrollY.addListener(o -> requestLayout());
+        zoom.addListener(o -> requestLayout());
+        setClip(clip);
+        setOnScroll(this::scrolled);
+    }
+
+    /**
+     * Returns the displayed grid.
+     *
+     * @return the displayed grid
+     */
+    public Grid<E> getGrid() {
+        return grid;
+    }
+
+    /**
+     * The horizontal offset, in pixels, of the left side of the view from the
+     * left side of the grid. An offset beyond the grid is clamped when the
+     * cells are displayed and located.
+     *
+     * @return the horizontal scroll property
+     */
+    public DoubleProperty scrollXProperty() {
+        return scrollX;
+    }
+
+    /**
+     * The vertical offset, in pixels, of the top side of the view from the top
+     * side of the grid. An offset beyond the grid is clamped when the cells
+     * are displayed and located.
+     *
+     * @return the vertical scroll property
+     */
+    public DoubleProperty scrollYProperty() {
+        return scrollY;
+    }
+
+    /**
+     * The scale applied to the size of the cells.
+     *
+     * @return the zoom property
+     */
+    public DoubleProperty zoomProperty() {
+        return zoom;
+    }
+
+    /**
+     * Set the bounds of the zoom applied by the mouse wheel.
+     *
+     * @param minZoom the smallest zoom
+     * @param maxZoom the largest zoom
+     * @throws IllegalArgumentException if the bounds are not positive or not in
+     * order
+     */
+    public void setZoomBounds(double minZoom, double maxZoom) {
+        if (!(minZoom > 0) || !(maxZoom >= minZoom)) {
+            throw new IllegalArgumentException("Illegal zoom bounds: " + minZoom + ", " + maxZoom);
+        }
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+    }
+
+    /**
+     * Returns the row of the grid displayed at the specified vertical position
+     * of the view.
+     *
+     * @param y the position in the coordinates of the view
+     * @return the row at this position, or {@link AbstractGrid#NONE} if it is
+     * outside of the grid
+     */
+    public int rowAt(double y) {
+        double row = Math.floor((y + offsetY()) / (cellHeight * zoom.get()));
+        return row >= 0 && row < grid.height() ? (int) row : AbstractGrid.NONE;
+    }
+
+    /**
+     * Returns the column of the grid displayed at the specified horizontal
+     * position of the view.
+     *
+     * @param x the position in the coordinates of the view
+     * @return the column at this position, or {@link AbstractGrid#NONE} if it
+     * is outside of the grid
+     */
+    public int columnAt(double x) {
+        double column = Math.floor((x + offsetX()) / (cellWidth * zoom.get()));
+        return column >= 0 && column < grid.width() ? (int) column : AbstractGrid.NONE;
+    }
+
+    /**
+     * Stop listening to the grid. The view is not updated anymore and can be
+     * garbage collected even if the grid is still used.
+     */
+    public void dispose() {
+        grid.removeGridListener(listener);
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return grid.width() * cellWidth * zoom.get();
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return grid.height() * cellHeight * zoom.get();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double viewWidth = getWidth();
+        double viewHeight = getHeight();
+        clip.setWidth(viewWidth);
+        clip.setHeight(viewHeight);
+        double w = cellWidth * zoom.get();
+        double h = cellHeight * zoom.get();
+        double x0 = offsetX();
+        double y0 = offsetY();
+        int top = (int) Math.floor(y0 / h);
+        int left = (int) Math.floor(x0 / w);
+        int bottom = Math.min(grid.height(), (int) Math.ceil((y0 + viewHeight) / h));
+        int right = Math.min(grid.width(), (int) Math.ceil((x0 + viewWidth) / w));
+        int rows = Math.max(0, bottom - top);
+        int columns = Math.max(0, right - left);
+        firstRow = top;
+        firstColumn = left;
+        lastRow = bottom - 1;
+        lastColumn = right - 1;
+
+        int needed = rows * columns;
+        if (pool.size() < needed) {
+            List<Node> created = new ArrayList<>(needed - pool.size());
+            while (pool.size() < needed) {
+                Node node = renderer.createNode();
+                pool.add(node);
+                created.add(node);
+            }
+            getChildren().addAll(created);
+        }
+        int k = 0;
+        for (int row = top; row < bottom; row++) {
+            for (int column = left; column < right; column++) {
+                Node node = pool.get(k++);
+                renderer.updateNode(node, grid.get(row, column).get(), row, column);
+                node.resizeRelocate(column * w - x0, row * h - y0, w, h);
+                if (k > usedNodes) {
+                    node.setVisible(true);
+                }
+            }
+        }
+        for (int i = needed; i < usedNodes; i++) {
+            pool.get(i).setVisible(false);
+        }
+        usedNodes = needed;
+        if (pool.size() > 2 * needed) {
+            List<Node> unused = pool.subList(needed, pool.size());
+            Set<Node> released = Collections.newSetFromMap(new IdentityHashMap<>());
+            released.addAll(unused);
+            getChildren().removeAll(released);
+            unused.clear();
+        }
+    }
+
+    /**
+     * Returns the horizontal offset of the displayed cells: the scroll offset
+     * clamped to the size of the grid.
+     */
+    private double offsetX() {
+        return clamp(scrollX.get(), grid.width() * cellWidth * zoom.get() - getWidth());
+    }
+
+    /**
+     * Returns the vertical offset of the displayed cells: the scroll offset
+     * clamped to the size of the grid.
+     */
+    private double offsetY() {
+        return clamp(scrollY.get(), grid.height() * cellHeight * zoom.get() - getHeight());
+    }
+
+    private static double clamp(double offset, double max) {
+        return Math.max(0, Math.min(offset, max));
+    }
+
+    private void scrolled(ScrollEvent e) {
+        if (e.isControlDown()) {
+            double oldZoom = zoom.get();
+            double newZoom = Math.max(minZoom, Math.min(maxZoom, oldZoom * Math.pow(1.001, e.getDeltaY())));
+            double ratio = newZoom / oldZoom;
+            // keep the point under the mouse pointer in place
+            double x = (offsetX() + e.getX()) * ratio - e.getX();
+            double y = (offsetY() + e.getY()) * ratio - e.getY();
+            zoom.set(newZoom);
+            scrollX.set(clamp(x, grid.width() * cellWidth * newZoom - getWidth()));
+            scrollY.set(clamp(y, grid.height() * cellHeight * newZoom - getHeight()));
+        } else {
+            double w = cellWidth * zoom.get();
+            double h = cellHeight * zoom.get();
+            scrollX.set(clamp(offsetX() - e.getDeltaX(), grid.width() * w - getWidth()));
+            scrollY.set(clamp(offsetY() - e.getDeltaY(), grid.height() * h - getHeight()));
+        }
+        e.consume();
+    }
+
+    /**
+     * Schedule a layout if a visible cell was modified.
+     */
+    private void changed(ChangeSet<E> changes) {
+        if (changes.maxRow() < firstRow || changes.minRow() > lastRow
+                || changes.maxColumn() < firstColumn || changes.minColumn() > lastColumn) {
+            return;
+        }
+        if (layoutScheduled.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                layoutScheduled.set(false);
+                requestLayout();
+            });
+        }
+    }
+
+    /**
+     * The tool used by a {@link VirtualGridView} to create the nodes of its
+     * viewport and to display a cell in one of them.
+     *
+     * @param <E> the class that the grid contains
+     */
+    public interface CellRenderer<E> {
+
+        /**
+         * Create an empty node. The view creates only the nodes needed for its
+         * viewport, and then reuses them for any cell.
+         *
+         * @return a new node
+         */
+        Node createNode();
+
+        /**
+         * Display a cell in a node created by {@link #createNode()}. The node
+         * may have displayed any other cell before.
+         *
+         * @param node the node to update
+         * @param value the value of the cell
+         * @param row the row of the cell
+         * @param column the column of the cell
+         */
+        void updateNode(Node node, E value, int row, int column);
+    }
+}